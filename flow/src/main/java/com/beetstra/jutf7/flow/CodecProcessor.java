@@ -0,0 +1,377 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7.flow;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import com.beetstra.jutf7.ModifiedUTF7Charset;
+import com.beetstra.jutf7.UTF7Charset;
+
+/**
+ * <p>Base class of the processors decoding and encoding a stream of buffers, as published 
+ * by a <code>Flow.Publisher</code>. The decoder or encoder is kept between buffers, so a 
+ * base 64 sequence may be split over several of them, and each buffer is converted as it 
+ * arrives rather than collecting the whole stream first. Exactly one of the two is set; 
+ * the subclasses only fix the buffer types and which coder is created.</p>
+ * 
+ * <p>One buffer is requested from upstream at a time, and only while downstream has 
+ * outstanding demand. An input buffer which does not fit in one output buffer is continued 
+ * in the next, when demand allows. Output buffers are taken from a pool; a subscriber done 
+ * with a buffer can return it using {@link #recycle(Buffer)}, otherwise a new one is 
+ * allocated.</p>
+ * 
+ * <p>Malformed input either ends the stream with an error, a 
+ * <code>CharacterCodingException</code>, or is replaced and counted; see 
+ * {@link #malformed()}.</p>
+ * 
+ * <p>Signals are delivered to the subscriber by one thread at a time, as the 
+ * <code>Flow</code> rules require, using the usual work-in-progress counter: whichever 
+ * thread finds it at zero drains, and the others only record their signal.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+abstract class CodecProcessor<T extends Buffer, R extends Buffer> implements
+		Flow.Processor<T, R>, Flow.Subscription {
+	/** The smallest output buffer, large enough for any single step of the coders */
+	static final int MIN_BUFFER_SIZE = 8;
+	private static final int POOL_SIZE = 16;
+	private final int bufferSize;
+	private final boolean reportMalformed;
+	private final CharsetDecoder decoder;
+	private final CharsetEncoder encoder;
+	private final T empty;
+	private final BlockingQueue<R> pool = new ArrayBlockingQueue<R>(POOL_SIZE);
+	private final AtomicInteger wip = new AtomicInteger();
+	private final AtomicLong demand = new AtomicLong();
+	private final LongAdder malformed = new LongAdder();
+	private volatile Flow.Subscription upstream;
+	private final AtomicReference<Flow.Subscriber<? super R>> downstream =
+			new AtomicReference<Flow.Subscriber<? super R>>();
+	private volatile T input;
+	private volatile boolean requested;
+	private volatile boolean done;
+	private volatile Throwable error;
+	private volatile boolean cancelled;
+	private boolean ended;
+	private R last;
+
+	/**
+	 * @param charset One of the charsets in {@link com.beetstra.jutf7.UTF7Charsets}
+	 * @param decode True to decode bytes into characters, false to encode characters into 
+	 *   bytes; must match the buffer types
+	 * @throws IllegalArgumentException if the charset is not a UTF-7 style charset, or the 
+	 *   buffer size is too small
+	 */
+	CodecProcessor(Charset charset, boolean decode, int bufferSize, boolean reportMalformed) {
+		if (!(charset instanceof UTF7Charset || charset instanceof ModifiedUTF7Charset))
+			throw new IllegalArgumentException("not a UTF-7 style charset: " + charset);
+		if (bufferSize < MIN_BUFFER_SIZE)
+			throw new IllegalArgumentException("buffer size: " + bufferSize);
+		this.bufferSize = bufferSize;
+		this.reportMalformed = reportMalformed;
+		if (decode) {
+			this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT);
+			this.encoder = null;
+			this.empty = (T) ByteBuffer.allocate(0);
+		} else {
+			this.decoder = null;
+			this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPORT);
+			this.empty = (T) CharBuffer.allocate(0);
+		}
+	}
+
+	/**
+	 * <p>Returns an output buffer to the pool, once the subscriber is done with it.</p>
+	 * 
+	 * @param buffer A buffer received by <code>onNext</code>
+	 */
+	public final void recycle(R buffer) {
+		if (buffer.capacity() == bufferSize && !buffer.isReadOnly()) {
+			buffer.clear();
+			pool.offer(buffer);
+		}
+	}
+
+	/**
+	 * @return The number of malformed sequences replaced, if not reported as errors
+	 */
+	public final long malformed() {
+		return malformed.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Publisher#subscribe(java.util.concurrent.Flow.Subscriber)
+	 */
+	public final void subscribe(Flow.Subscriber<? super R> subscriber) {
+		if (!downstream.compareAndSet(null, subscriber)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				public void request(long n) {
+				}
+
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("already subscribed"));
+			return;
+		}
+		subscriber.onSubscribe(this);
+		drain();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onSubscribe(java.util.concurrent.Flow.Subscription)
+	 */
+	public final void onSubscribe(Flow.Subscription subscription) {
+		if (upstream != null) {
+			subscription.cancel();
+			return;
+		}
+		upstream = subscription;
+		drain();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onNext(java.lang.Object)
+	 */
+	public final void onNext(T item) {
+		input = item;
+		requested = false;
+		drain();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onError(java.lang.Throwable)
+	 */
+	public final void onError(Throwable throwable) {
+		error = throwable;
+		drain();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onComplete()
+	 */
+	public final void onComplete() {
+		done = true;
+		drain();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscription#request(long)
+	 */
+	public final void request(long n) {
+		if (n <= 0) {
+			error = new IllegalArgumentException("non-positive request: " + n);
+			drain();
+			return;
+		}
+		long current;
+		long next;
+		do {
+			current = demand.get();
+			next = current + n;
+			if (next < 0)
+				next = Long.MAX_VALUE;
+		} while (!demand.compareAndSet(current, next));
+		drain();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscription#cancel()
+	 */
+	public final void cancel() {
+		cancelled = true;
+		Flow.Subscription subscription = upstream;
+		if (subscription != null)
+			subscription.cancel();
+	}
+
+	private void drain() {
+		if (wip.getAndIncrement() != 0)
+			return;
+		do {
+			Flow.Subscriber<? super R> subscriber = downstream.get();
+			if (subscriber != null && !ended)
+				drainTo(subscriber);
+		} while (wip.decrementAndGet() != 0);
+	}
+
+	private void drainTo(Flow.Subscriber<? super R> subscriber) {
+		while (!cancelled) {
+			if (error != null) {
+				terminate(subscriber, error);
+				return;
+			}
+			T in = input;
+			if (in == null && !done) {
+				Flow.Subscription subscription = upstream;
+				if (demand.get() > 0 && !requested && subscription != null) {
+					requested = true;
+					subscription.request(1);
+				}
+				return;
+			}
+			if (demand.get() == 0)
+				return;
+			R out = last;
+			last = null;
+			if (out == null) {
+				out = pool.poll();
+				if (out == null)
+					out = allocate(bufferSize);
+			}
+			try {
+				if (in != null) {
+					convert(in, out);
+					if (!in.hasRemaining())
+						input = null;
+				} else if (end(out)) {
+					ended = true;
+				}
+			} catch (CharacterCodingException e) {
+				terminate(subscriber, e);
+				return;
+			}
+			if (out.position() > 0) {
+				out.flip();
+				demand.decrementAndGet();
+				subscriber.onNext(out);
+			} else
+				last = out;
+			if (ended) {
+				subscriber.onComplete();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Converts until the input is used up or the output is full. The decoders and encoders 
+	 * of the UTF-7 style charsets keep partial sequences in their state, so the input is 
+	 * always used up on underflow.
+	 */
+	private void convert(T in, R out) throws CharacterCodingException {
+		while (true) {
+			CoderResult result = convert(in, out, false);
+			if (!result.isError() || !replace(in, out, result))
+				return;
+		}
+	}
+
+	/**
+	 * Ends the conversion, once the input is complete.
+	 * 
+	 * @return True if done, false if <code>out</code> is full
+	 */
+	private boolean end(R out) throws CharacterCodingException {
+		CoderResult result = convert(empty, out, true);
+		if (result.isOverflow())
+			return false;
+		result = flush(out);
+		if (result.isOverflow())
+			return false;
+		if (result.isError()) {
+			if (reportMalformed)
+				result.throwException();
+			// the decoder reports the error again if flushed again, so only count it once 
+			// the replacement is in
+			if (!putReplacement(out))
+				return false;
+			malformed.increment();
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces a malformed sequence, or throws the exception for it.
+	 * 
+	 * @return True if replaced, false if <code>out</code> has no room
+	 */
+	private boolean replace(T in, R out, CoderResult result) throws CharacterCodingException {
+		if (reportMalformed)
+			result.throwException();
+		if (!putReplacement(out))
+			return false;
+		malformed.increment();
+		in.position(in.position() + result.length());
+		return true;
+	}
+
+	private CoderResult convert(T in, R out, boolean endOfInput) {
+		if (decoder != null)
+			return decoder.decode((ByteBuffer) in, (CharBuffer) out, endOfInput);
+		return encoder.encode((CharBuffer) in, (ByteBuffer) out, endOfInput);
+	}
+
+	private CoderResult flush(R out) {
+		if (decoder != null)
+			return decoder.flush((CharBuffer) out);
+		return encoder.flush((ByteBuffer) out);
+	}
+
+	/**
+	 * @return True if the replacement was put, false if <code>out</code> has no room
+	 */
+	private boolean putReplacement(R out) {
+		if (decoder != null) {
+			String replacement = decoder.replacement();
+			if (out.remaining() < replacement.length())
+				return false;
+			((CharBuffer) out).put(replacement);
+		} else {
+			byte[] replacement = encoder.replacement();
+			if (out.remaining() < replacement.length)
+				return false;
+			((ByteBuffer) out).put(replacement);
+		}
+		return true;
+	}
+
+	private R allocate(int size) {
+		if (decoder != null)
+			return (R) CharBuffer.allocate(size);
+		return (R) ByteBuffer.allocate(size);
+	}
+
+	private void terminate(Flow.Subscriber<? super R> subscriber, Throwable throwable) {
+		ended = true;
+		Flow.Subscription subscription = upstream;
+		if (subscription != null)
+			subscription.cancel();
+		subscriber.onError(throwable);
+	}
+}
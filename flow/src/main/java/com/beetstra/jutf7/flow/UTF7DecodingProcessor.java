@@ -0,0 +1,50 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7.flow;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * <p>A <code>Flow.Processor</code> decoding a stream of byte buffers in one of the UTF-7 
+ * style charsets into a stream of character buffers.</p>
+ * 
+ * @see CodecProcessor
+ * @author Jaap Beetstra
+ */
+public final class UTF7DecodingProcessor extends CodecProcessor<ByteBuffer, CharBuffer> {
+	/**
+	 * @param charset One of the charsets in {@link com.beetstra.jutf7.UTF7Charsets}
+	 * @param bufferSize The capacity of the output buffers, at least 8
+	 * @param reportMalformed True to end the stream with a 
+	 *   <code>MalformedInputException</code> at malformed input, false to replace it by 
+	 *   U+FFFD
+	 * @throws IllegalArgumentException if the charset is not a UTF-7 style charset, or the 
+	 *   buffer size is too small
+	 */
+	public UTF7DecodingProcessor(Charset charset, int bufferSize, boolean reportMalformed) {
+		super(charset, true, bufferSize, reportMalformed);
+	}
+}
@@ -0,0 +1,318 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7.flow;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import com.beetstra.jutf7.UTF7Charsets;
+
+public class FlowProcessorTest extends TestCase {
+	private static final String CHARS = "aAz~&+-/. !\u00E9\u0100\u65E5\u672C\uD800\uDC00";
+	private Random random;
+
+	protected void setUp() throws Exception {
+		random = new Random(42);
+	}
+
+	public void testDecode() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			String s = randomString(200);
+			Charset cs = i % 2 == 0 ? UTF7Charsets.UTF_7 : UTF7Charsets.X_MODIFIED_UTF_7;
+			UTF7DecodingProcessor processor = new UTF7DecodingProcessor(
+					cs, 8 + random.nextInt(8), true);
+			Collector collector = new Collector(processor, 1 + random.nextInt(3));
+			new ListPublisher(split(ByteBuffer.wrap(s.getBytes(cs.name())))).subscribe(processor);
+			assertTrue(collector.completed);
+			assertNull(collector.error);
+			assertEquals(s, collector.text());
+		}
+	}
+
+	public void testEncode() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			String s = randomString(200);
+			Charset cs = i % 2 == 0 ? UTF7Charsets.UTF_7 : UTF7Charsets.X_MODIFIED_UTF_7;
+			UTF7EncodingProcessor processor = new UTF7EncodingProcessor(
+					cs, 8 + random.nextInt(8), true);
+			Collector collector = new Collector(processor, 1 + random.nextInt(3));
+			new ListPublisher(split(CharBuffer.wrap(s))).subscribe(processor);
+			assertTrue(collector.completed);
+			assertEquals(new String(s.getBytes(cs.name()), "US-ASCII"), collector.text());
+		}
+	}
+
+	public void testMalformedReported() throws Exception {
+		UTF7DecodingProcessor processor = new UTF7DecodingProcessor(
+				UTF7Charsets.X_MODIFIED_UTF_7, 16, true);
+		Collector collector = new Collector(processor, 1);
+		List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+		chunks.add(ByteBuffer.wrap("ab&Jj".getBytes("US-ASCII")));
+		chunks.add(ByteBuffer.wrap("o!-cd".getBytes("US-ASCII")));
+		ListPublisher publisher = new ListPublisher(chunks);
+		publisher.subscribe(processor);
+		assertFalse(collector.completed);
+		assertTrue(collector.error instanceof MalformedInputException);
+		assertTrue(publisher.cancelled);
+	}
+
+	public void testMalformedCounted() throws Exception {
+		UTF7DecodingProcessor processor = new UTF7DecodingProcessor(
+				UTF7Charsets.X_MODIFIED_UTF_7, 16, false);
+		Collector collector = new Collector(processor, 1);
+		List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+		chunks.add(ByteBuffer.wrap("ab&Jj".getBytes("US-ASCII")));
+		chunks.add(ByteBuffer.wrap("o!-cd&Jj".getBytes("US-ASCII")));
+		new ListPublisher(chunks).subscribe(processor);
+		assertTrue(collector.completed);
+		assertEquals("ab\u263A\uFFFDcd\uFFFD", collector.text());
+		assertEquals(2, processor.malformed());
+	}
+
+	public void testDemand() throws Exception {
+		UTF7DecodingProcessor processor = new UTF7DecodingProcessor(
+				UTF7Charsets.UTF_7, 8, true);
+		Collector collector = new Collector(processor, 0);
+		ListPublisher publisher = new ListPublisher(split(ByteBuffer.wrap("Hi Mom -+Jjo--!"
+				.getBytes("US-ASCII"))));
+		publisher.subscribe(processor);
+		assertEquals(0, collector.chunks.size());
+		assertEquals(0, publisher.requested);
+		collector.subscription.request(1);
+		assertEquals(1, collector.chunks.size());
+		collector.subscription.request(Long.MAX_VALUE);
+		collector.subscription.request(Long.MAX_VALUE);
+		assertTrue(collector.completed);
+		assertEquals("Hi Mom -\u263A-!", collector.text());
+	}
+
+	public void testAsynchronous() throws Exception {
+		String s = randomString(5000);
+		UTF7DecodingProcessor processor = new UTF7DecodingProcessor(
+				UTF7Charsets.UTF_7, 64, true);
+		Collector collector = new Collector(processor, 2);
+		SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<ByteBuffer>();
+		publisher.subscribe(processor);
+		List<ByteBuffer> chunks = split(ByteBuffer.wrap(s.getBytes("UTF-7")));
+		for (int i = 0; i < chunks.size(); i++)
+			publisher.submit(chunks.get(i));
+		publisher.close();
+		synchronized (collector) {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (!collector.completed && System.nanoTime() < deadline)
+				collector.wait(100);
+		}
+		assertTrue(collector.completed);
+		assertEquals(s, collector.text());
+	}
+
+	public void testSingleSubscriber() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			final UTF7DecodingProcessor processor = new UTF7DecodingProcessor(
+					UTF7Charsets.UTF_7, 16, true);
+			final CountDownLatch start = new CountDownLatch(1);
+			final AtomicInteger rejected = new AtomicInteger();
+			Thread[] threads = new Thread[2];
+			for (int j = 0; j < threads.length; j++) {
+				threads[j] = new Thread() {
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						processor.subscribe(new Flow.Subscriber() {
+							public void onSubscribe(Flow.Subscription subscription) {
+							}
+
+							public void onNext(Object item) {
+							}
+
+							public void onError(Throwable throwable) {
+								if (throwable instanceof IllegalStateException)
+									rejected.incrementAndGet();
+							}
+
+							public void onComplete() {
+							}
+						});
+					}
+				};
+				threads[j].start();
+			}
+			start.countDown();
+			for (int j = 0; j < threads.length; j++)
+				threads[j].join();
+			assertEquals(1, rejected.get());
+		}
+	}
+
+	public void testInvalidArguments() throws Exception {
+		try {
+			new UTF7DecodingProcessor(Charset.forName("UTF-8"), 16, true);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new UTF7EncodingProcessor(UTF7Charsets.UTF_7, 4, true);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Splits the remaining content of a buffer into buffers of random size.
+	 */
+	private <B extends Buffer> List<B> split(B buffer) {
+		List<B> chunks = new ArrayList<B>();
+		while (buffer.hasRemaining()) {
+			int size = Math.min(buffer.remaining(), 1 + random.nextInt(10));
+			Buffer chunk = buffer instanceof ByteBuffer ? ((ByteBuffer) buffer).slice()
+					: ((CharBuffer) buffer).slice();
+			chunk.limit(size);
+			chunks.add((B) chunk);
+			buffer.position(buffer.position() + size);
+		}
+		return chunks;
+	}
+
+	private String randomString(int maxLength) {
+		StringBuffer sb = new StringBuffer();
+		int length = random.nextInt(maxLength);
+		for (int i = 0; i < length; i++)
+			sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+		return sb.toString();
+	}
+
+	/**
+	 * Publishes the buffers of a list on the thread requesting them.
+	 */
+	private static class ListPublisher implements Flow.Publisher, Flow.Subscription {
+		private final List chunks;
+		private Flow.Subscriber subscriber;
+		private int next;
+		private long requested;
+		private boolean emitting;
+		boolean cancelled;
+
+		ListPublisher(List chunks) {
+			this.chunks = chunks;
+		}
+
+		public void subscribe(Flow.Subscriber subscriber) {
+			this.subscriber = subscriber;
+			subscriber.onSubscribe(this);
+		}
+
+		public void request(long n) {
+			requested += n;
+			if (emitting)
+				return;
+			emitting = true;
+			while (requested > 0 && next < chunks.size() && !cancelled) {
+				requested--;
+				subscriber.onNext(chunks.get(next++));
+			}
+			if (next == chunks.size() && !cancelled) {
+				next++;
+				subscriber.onComplete();
+			}
+			emitting = false;
+		}
+
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * Collects the buffers received, requesting a number at a time and recycling them.
+	 */
+	private static class Collector implements Flow.Subscriber {
+		private final CodecProcessor processor;
+		private final int batch;
+		final List<String> chunks = new ArrayList<String>();
+		Flow.Subscription subscription;
+		boolean completed;
+		Throwable error;
+		private int received;
+
+		Collector(CodecProcessor processor, int batch) {
+			this.processor = processor;
+			this.batch = batch;
+			processor.subscribe(this);
+		}
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (batch > 0)
+				subscription.request(batch);
+		}
+
+		public synchronized void onNext(Object item) {
+			if (item instanceof CharBuffer)
+				chunks.add(item.toString());
+			else {
+				ByteBuffer bytes = (ByteBuffer) item;
+				StringBuffer sb = new StringBuffer();
+				while (bytes.hasRemaining())
+					sb.append((char) bytes.get());
+				chunks.add(sb.toString());
+			}
+			processor.recycle((Buffer) item);
+			if (batch > 0 && ++received % batch == 0)
+				subscription.request(batch);
+		}
+
+		public synchronized void onError(Throwable throwable) {
+			error = throwable;
+			notifyAll();
+		}
+
+		public synchronized void onComplete() {
+			completed = true;
+			notifyAll();
+		}
+
+		synchronized String text() {
+			StringBuffer sb = new StringBuffer();
+			for (int i = 0; i < chunks.size(); i++)
+				sb.append(chunks.get(i));
+			return sb.toString();
+		}
+	}
+}
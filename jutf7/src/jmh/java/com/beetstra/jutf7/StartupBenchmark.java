@@ -0,0 +1,104 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * <p>Measures the startup cost of the provider: the time taken by the first 
+ * <code>Charset.forName("UTF-8")</code>, the first lookup of an unknown charset (which 
+ * makes the JDK ask every installed provider), and the first UTF-7 encoding. Each 
+ * measurement is made in a new JVM, with and without the jar on the class path.</p>
+ * 
+ * <p>Usage: <code>java -cp target/test-classes com.beetstra.jutf7.StartupBenchmark 
+ * target/jutf7-&lt;version&gt;.jar [runs]</code></p>
+ * 
+ * @author Jaap Beetstra
+ */
+public class StartupBenchmark {
+	private static final String[] OPERATIONS = new String[] { "utf8", "unknown", "utf7" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("usage: StartupBenchmark <jar> [runs]");
+			System.exit(1);
+		}
+		String probePath = new File(StartupBenchmark.class.getProtectionDomain().getCodeSource()
+				.getLocation().toURI()).getPath();
+		String withJar = probePath + File.pathSeparator + args[0];
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		System.out.println("operation     without jar (us)    with jar (us)");
+		for (int i = 0; i < OPERATIONS.length; i++) {
+			String operation = OPERATIONS[i];
+			String without = "utf7".equals(operation) ? "-" : median(probePath, operation, runs);
+			System.out.println(pad(operation, 14) + pad(without, 20) + median(withJar, operation,
+					runs));
+		}
+	}
+
+	private static String median(String classPath, String operation, int runs) throws Exception {
+		long[] times = new long[runs];
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+				+ "java";
+		for (int i = 0; i < runs; i++) {
+			Process process = new ProcessBuilder(java, "-cp", classPath,
+					StartupBenchmark.class.getName() + "$Probe", operation).start();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process
+					.getInputStream()));
+			String line = reader.readLine();
+			if (process.waitFor() != 0 || line == null)
+				throw new IllegalStateException("probe failed: " + operation);
+			times[i] = Long.parseLong(line);
+		}
+		Arrays.sort(times);
+		return String.valueOf(times[runs / 2] / 1000);
+	}
+
+	private static String pad(String string, int width) {
+		StringBuffer sb = new StringBuffer(string);
+		while (sb.length() < width)
+			sb.append(' ');
+		return sb.toString();
+	}
+
+	/**
+	 * Runs in a new JVM: performs one operation and prints the time it took in nanoseconds.
+	 */
+	public static class Probe {
+		public static void main(String[] args) {
+			long start = System.nanoTime();
+			if ("utf8".equals(args[0]))
+				Charset.forName("UTF-8");
+			else if ("unknown".equals(args[0]))
+				Charset.isSupported("X-DOES-NOT-EXIST");
+			else
+				Charset.forName("UTF-7").encode("Hi Mom \u263A!");
+			System.out.println(System.nanoTime() - start);
+		}
+	}
+}
@@ -27,7 +27,8 @@ import java.util.Arrays;
 
 /**
  * <p>Represent a base 64 mapping. The 64 characters used in the encoding can be specified, 
- * since modified-UTF-7 uses other characters than UTF-7 (',' instead of '/').</p>
+ * since modified-UTF-7 uses other characters than UTF-7 (',' instead of '/'). Instances are 
+ * immutable; there is one per alphabet, shared by all charsets using it.</p>
  * 
  * <p>The exact type of the arguments and result values is adapted to the needs of the 
  * encoder and decoder, as opposed to following a strict interpretation of base 64.</p> 
@@ -77,7 +78,7 @@ class Base64Util {
 	 * @return The six bits, as an integer value, or -1 if the byte is not in the alphabet
 	 */
 	int getSextet(final byte ch) {
-		if (ch >= 128)
+		if (ch < 0)
 			return -1;
 		return inverseAlphabet[ch];
 	}
@@ -0,0 +1,199 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The counters of a single UTF-7 style charset. Counters are kept per charset name, so all 
+ * instances of a charset share them, whichever <code>CharsetProvider</code> created them.</p>
+ * 
+ * <p>The counters are striped, so concurrent encoders and decoders do not contend. They are 
+ * only updated when metrics are enabled; when disabled, an encode or decode loop pays for 
+ * reading a single volatile flag.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class CharsetMetrics implements CharsetMetricsMBean {
+	static final int MALFORMED_INVALID_BASE64 = 0;
+	static final int MALFORMED_INCOMPLETE_BASE64 = 1;
+	static final int MALFORMED_ADJACENT_BASE64 = 2;
+	static final int MALFORMED_UNTERMINATED_BASE64 = 3;
+	private static final Map<String, CharsetMetrics> REGISTRY = new HashMap<String, CharsetMetrics>();
+	static volatile boolean enabled = Boolean.getBoolean("com.beetstra.jutf7.metrics");
+	private final String charsetName;
+	private final StripedCounter bytesIn = new StripedCounter();
+	private final StripedCounter bytesOut = new StripedCounter();
+	private final StripedCounter charsIn = new StripedCounter();
+	private final StripedCounter charsOut = new StripedCounter();
+	private final StripedCounter encodersCreated = new StripedCounter();
+	private final StripedCounter decodersCreated = new StripedCounter();
+	private final StripedCounter encodeOverflows = new StripedCounter();
+	private final StripedCounter decodeOverflows = new StripedCounter();
+	private final StripedCounter[] malformed = new StripedCounter[] { new StripedCounter(),
+			new StripedCounter(), new StripedCounter(), new StripedCounter() };
+
+	private CharsetMetrics(String charsetName) {
+		this.charsetName = charsetName;
+	}
+
+	/**
+	 * @param charsetName The canonical name of the charset
+	 * @return The counters of the charset, created if necessary
+	 */
+	static CharsetMetrics forCharset(String charsetName) {
+		synchronized (REGISTRY) {
+			CharsetMetrics metrics = REGISTRY.get(charsetName);
+			if (metrics == null) {
+				metrics = new CharsetMetrics(charsetName);
+				REGISTRY.put(charsetName, metrics);
+			}
+			return metrics;
+		}
+	}
+
+	/**
+	 * @return The counters of all charsets created so far
+	 */
+	static List<CharsetMetrics> all() {
+		synchronized (REGISTRY) {
+			return new ArrayList<CharsetMetrics>(REGISTRY.values());
+		}
+	}
+
+	void encoderCreated() {
+		encodersCreated.increment();
+	}
+
+	void decoderCreated() {
+		decodersCreated.increment();
+	}
+
+	/**
+	 * Records the result of a single call to <code>encodeLoop</code>.
+	 */
+	void encoded(int chars, int bytes, boolean overflow) {
+		charsIn.add(chars);
+		bytesOut.add(bytes);
+		if (overflow)
+			encodeOverflows.increment();
+	}
+
+	/**
+	 * Records the result of a single call to <code>decodeLoop</code>.
+	 */
+	void decoded(int bytes, int chars, boolean overflow) {
+		bytesIn.add(bytes);
+		charsOut.add(chars);
+		if (overflow)
+			decodeOverflows.increment();
+	}
+
+	/**
+	 * @param kind One of the <code>MALFORMED_</code> constants
+	 */
+	void malformed(int kind) {
+		malformed[kind].increment();
+	}
+
+	MetricsSnapshot snapshot() {
+		return new MetricsSnapshot(this);
+	}
+
+	public String getCharsetName() {
+		return charsetName;
+	}
+
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+
+	public long getBytesOut() {
+		return bytesOut.sum();
+	}
+
+	public long getCharsIn() {
+		return charsIn.sum();
+	}
+
+	public long getCharsOut() {
+		return charsOut.sum();
+	}
+
+	public long getEncodersCreated() {
+		return encodersCreated.sum();
+	}
+
+	public long getDecodersCreated() {
+		return decodersCreated.sum();
+	}
+
+	public long getEncodeOverflows() {
+		return encodeOverflows.sum();
+	}
+
+	public long getDecodeOverflows() {
+		return decodeOverflows.sum();
+	}
+
+	public long getMalformedInvalidBase64() {
+		return malformed[MALFORMED_INVALID_BASE64].sum();
+	}
+
+	public long getMalformedIncompleteBase64() {
+		return malformed[MALFORMED_INCOMPLETE_BASE64].sum();
+	}
+
+	public long getMalformedAdjacentBase64() {
+		return malformed[MALFORMED_ADJACENT_BASE64].sum();
+	}
+
+	public long getMalformedUnterminatedBase64() {
+		return malformed[MALFORMED_UNTERMINATED_BASE64].sum();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		CharsetMetrics.enabled = enabled;
+	}
+
+	public void reset() {
+		bytesIn.reset();
+		bytesOut.reset();
+		charsIn.reset();
+		charsOut.reset();
+		encodersCreated.reset();
+		decodersCreated.reset();
+		encodeOverflows.reset();
+		decodeOverflows.reset();
+		for (int i = 0; i < malformed.length; i++)
+			malformed[i].reset();
+	}
+}
@@ -0,0 +1,90 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+/**
+ * <p>Management interface for the metrics of a single UTF-7 style charset. Bytes in and 
+ * chars out are counted by decoders, chars in and bytes out by encoders.</p>
+ * 
+ * @see UTF7Metrics
+ * @author Jaap Beetstra
+ */
+public interface CharsetMetricsMBean {
+	String getCharsetName();
+
+	long getBytesIn();
+
+	long getBytesOut();
+
+	long getCharsIn();
+
+	long getCharsOut();
+
+	long getEncodersCreated();
+
+	long getDecodersCreated();
+
+	long getEncodeOverflows();
+
+	long getDecodeOverflows();
+
+	/**
+	 * @return The number of characters not in the base 64 alphabet found inside a base 64 
+	 *  sequence, in charsets which do not allow this
+	 */
+	long getMalformedInvalidBase64();
+
+	/**
+	 * @return The number of base 64 sequences which ended with bits left that do not form a 
+	 *  complete character, or with non-zero padding bits
+	 */
+	long getMalformedIncompleteBase64();
+
+	/**
+	 * @return The number of base 64 sequences directly following another one, in charsets 
+	 *  which do not allow this
+	 */
+	long getMalformedAdjacentBase64();
+
+	/**
+	 * @return The number of base 64 sequences which were not terminated before the end of 
+	 *  the input, in charsets which require this
+	 */
+	long getMalformedUnterminatedBase64();
+
+	/**
+	 * @return True if metrics are being collected (for all charsets)
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Starts or stops collecting metrics, for all charsets.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Resets all counters of this charset to zero.
+	 */
+	void reset();
+}
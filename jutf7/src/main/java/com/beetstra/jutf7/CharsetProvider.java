@@ -0,0 +1,212 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>Charset service-provider class used for both variants of the UTF-7 charset 
+ * and the modified-UTF-7 charset.</p>
+ * 
+ * <p>The JDK asks every installed provider about each charset name it does not know itself, 
+ * so {@link #charsetForName(String)} is kept cheap: names and aliases are looked up in a 
+ * precomputed, case-insensitive hash table, without allocating. Each charset is created 
+ * when it is first found, by initialising its holder class; until then, having this 
+ * provider installed costs next to nothing. {@link #charsets()} resolves each charset only 
+ * as the iteration reaches it; note that enumerating all of them, as 
+ * {@link Charset#availableCharsets()} does, therefore creates all three.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public class CharsetProvider extends java.nio.charset.spi.CharsetProvider {
+	static final String UTF7_NAME = "UTF-7";
+	static final String UTF7_O_NAME = "X-UTF-7-OPTIONAL";
+	static final String UTF7_M_NAME = "X-MODIFIED-UTF-7";
+	static final String[] UTF7_ALIASES = new String[] { "UNICODE-1-1-UTF-7",
+			"CSUNICODE11UTF7", "X-RFC2152", "X-RFC-2152" };
+	static final String[] UTF7_O_ALIASES = new String[] { "X-RFC2152-OPTIONAL",
+			"X-RFC-2152-OPTIONAL" };
+	static final String[] UTF7_M_ALIASES = new String[] { "X-IMAP-MODIFIED-UTF-7",
+			"X-IMAP4-MODIFIED-UTF7", "X-IMAP4-MODIFIED-UTF-7", "X-RFC3501", "X-RFC-3501" };
+	private static final int UTF7 = 0;
+	private static final int UTF7_O = 1;
+	private static final int UTF7_M = 2;
+	private static final String[] INDEX_NAMES;
+	private static final int[] INDEX_CHARSETS;
+	private static final int INDEX_MASK;
+	private static final int MIN_NAME_LENGTH;
+	private static final int MAX_NAME_LENGTH;
+	private static final List<Charset> CHARSETS = new CharsetList();
+	static {
+		String[][] names = new String[][] { UTF7_ALIASES, UTF7_O_ALIASES, UTF7_M_ALIASES };
+		String[] canonical = new String[] { UTF7_NAME, UTF7_O_NAME, UTF7_M_NAME };
+		int count = 0;
+		for (int i = 0; i < names.length; i++)
+			count += names[i].length + 1;
+		int size = Integer.highestOneBit(count * 4);
+		INDEX_NAMES = new String[size];
+		INDEX_CHARSETS = new int[size];
+		INDEX_MASK = size - 1;
+		int minLength = Integer.MAX_VALUE;
+		int maxLength = 0;
+		for (int i = 0; i < names.length; i++) {
+			for (int j = -1; j < names[i].length; j++) {
+				String name = j < 0 ? canonical[i] : names[i][j];
+				int slot = hash(name) & INDEX_MASK;
+				while (INDEX_NAMES[slot] != null)
+					slot = (slot + 1) & INDEX_MASK;
+				INDEX_NAMES[slot] = name;
+				INDEX_CHARSETS[slot] = i;
+				minLength = Math.min(minLength, name.length());
+				maxLength = Math.max(maxLength, name.length());
+			}
+		}
+		MIN_NAME_LENGTH = minLength;
+		MAX_NAME_LENGTH = maxLength;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Charset charsetForName(String charsetName) {
+		int length = charsetName.length();
+		if (length < MIN_NAME_LENGTH || length > MAX_NAME_LENGTH)
+			return null;
+		int slot = hash(charsetName) & INDEX_MASK;
+		for (String name; (name = INDEX_NAMES[slot]) != null; slot = (slot + 1) & INDEX_MASK) {
+			if (equalsIgnoreCase(name, charsetName))
+				return charset(INDEX_CHARSETS[slot]);
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Iterator<Charset> charsets() {
+		return CHARSETS.iterator();
+	}
+
+	private static Charset charset(int index) {
+		switch (index) {
+		case UTF7:
+			return UTF7Holder.CHARSET;
+		case UTF7_O:
+			return UTF7OptionalHolder.CHARSET;
+		case UTF7_M:
+			return ModifiedUTF7Holder.CHARSET;
+		default:
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+	}
+
+	/*
+	 * Unmodifiable, as AbstractList does not implement set, add or remove; get initialises 
+	 * only the holder it returns.
+	 */
+	private static final class CharsetList extends AbstractList<Charset> {
+		/* (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		public Charset get(int index) {
+			return charset(index);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		public int size() {
+			return 3;
+		}
+	}
+
+	/*
+	 * The holders declare their fields as Charset, so verifying charsetForName does not 
+	 * load the charset classes.
+	 */
+	static final class UTF7Holder {
+		static final Charset CHARSET = new UTF7Charset(UTF7_NAME, UTF7_ALIASES, false);
+	}
+
+	static final class UTF7OptionalHolder {
+		static final Charset CHARSET = new UTF7Charset(UTF7_O_NAME, UTF7_O_ALIASES, true);
+	}
+
+	static final class ModifiedUTF7Holder {
+		static final Charset CHARSET = new ModifiedUTF7Charset(UTF7_M_NAME, UTF7_M_ALIASES);
+	}
+
+	/**
+	 * <p>Calculates a hash code ignoring the case of ASCII letters. Charset names consist of 
+	 * ASCII characters only, so unlike {@link String#toUpperCase()} this does not depend on 
+	 * the default locale (think of the Turkish dotless i).</p>
+	 */
+	private static int hash(String name) {
+		int hash = 0;
+		for (int i = 0; i < name.length(); i++)
+			hash = 31 * hash + toUpperCase(name.charAt(i));
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @param name A name from the index, in upper case
+	 * @param charsetName The name looked up
+	 */
+	private static boolean equalsIgnoreCase(String name, String charsetName) {
+		if (name.length() != charsetName.length())
+			return false;
+		for (int i = 0; i < name.length(); i++)
+			if (name.charAt(i) != toUpperCase(charsetName.charAt(i)))
+				return false;
+		return true;
+	}
+
+	private static char toUpperCase(char ch) {
+		return ch >= 'a' && ch <= 'z' ? (char) (ch - ('a' - 'A')) : ch;
+	}
+
+	public static void main(String[] args) throws UnsupportedEncodingException {
+		if (args.length < 2) {
+			showUsage();
+		} else if ("encode".equalsIgnoreCase(args[0])) {
+			byte[] encoded = args[1].getBytes(UTF7_NAME);
+			System.out.println(new String(encoded, "US-ASCII"));
+		} else if ("decode".equalsIgnoreCase(args[0])) {
+			byte[] bytes = args[1].getBytes("US-ASCII");
+			System.out.println(new String(bytes, UTF7_NAME));
+		} else
+			showUsage();
+	}
+
+	private static void showUsage() {
+		System.out.println("Usage: java -jar jutf7.jar [encode|decode] <text>");
+		System.out.println();
+		System.out.println("Example: java -jar jutf7 encode caf\u00E9");
+		System.out.println("Result: caf+AOk-");
+	}
+}
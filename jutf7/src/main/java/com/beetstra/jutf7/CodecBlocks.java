@@ -0,0 +1,60 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+/**
+ * <p>The arrays {@link CodecSupport} copies blocks through when a buffer has no accessible 
+ * array, such as a direct buffer or a buffer wrapping a <code>String</code>. Each decoder 
+ * and encoder has its own, and the arrays are created when first needed, so copying does 
+ * not allocate on every call, and coders never given such buffers do not pay for them.</p>
+ * 
+ * <p>This class is the same for all JDKs; only {@link CodecSupport} has versions in the 
+ * multi-release jar.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class CodecBlocks {
+	/** The number of bytes or characters copied at a time */
+	static final int SIZE = 64;
+	private byte[] bytes;
+	private char[] chars;
+
+	/**
+	 * @return The byte array, of {@link #SIZE} bytes
+	 */
+	byte[] bytes() {
+		if (bytes == null)
+			bytes = new byte[SIZE];
+		return bytes;
+	}
+
+	/**
+	 * @return The character array, of {@link #SIZE} characters
+	 */
+	char[] chars() {
+		if (chars == null)
+			chars = new char[SIZE];
+		return chars;
+	}
+}
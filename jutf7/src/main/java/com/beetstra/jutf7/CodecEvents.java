@@ -0,0 +1,86 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+/**
+ * <p>Hook for reporting encode and decode operations to a monitoring facility. This class 
+ * does nothing; on Java 11 and later it is replaced by an implementation emitting Java Flight 
+ * Recorder events, which is loaded from the versioned part of the jar.</p>
+ * 
+ * <p>An operation is reported by calling one of the <code>begin</code> methods, and passing 
+ * the token it returns to the matching <code>end</code> method. A null token means nobody is 
+ * listening, in which case callers should skip collecting the details.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+class CodecEvents {
+	private static final String JFR_IMPLEMENTATION = "com.beetstra.jutf7.JfrCodecEvents";
+	static final CodecEvents INSTANCE = load();
+
+	private static CodecEvents load() {
+		try {
+			return (CodecEvents) Class.forName(JFR_IMPLEMENTATION).newInstance();
+		} catch (Exception e) {
+			return new CodecEvents();
+		} catch (LinkageError e) {
+			return new CodecEvents();
+		}
+	}
+
+	/**
+	 * @return A token to pass to {@link #endDecode}, or null if decode events are not recorded
+	 */
+	Object beginDecode() {
+		return null;
+	}
+
+	/**
+	 * @return A token to pass to {@link #endEncode}, or null if encode events are not recorded
+	 */
+	Object beginEncode() {
+		return null;
+	}
+
+	/**
+	 * @param token The token returned by {@link #beginDecode()}
+	 * @param charsetName The name of the charset decoded from
+	 * @param inputSize The number of bytes read
+	 * @param outputSize The number of chars written, or bytes for transcoders and converters
+	 * @param malformed The number of malformed sequences found
+	 */
+	void endDecode(Object token, String charsetName, long inputSize, long outputSize,
+			int malformed) {
+	}
+
+	/**
+	 * @param token The token returned by {@link #beginEncode()}
+	 * @param charsetName The name of the charset encoded to
+	 * @param inputSize The number of chars read
+	 * @param outputSize The number of bytes written
+	 * @param malformed The number of malformed sequences found
+	 */
+	void endEncode(Object token, String charsetName, long inputSize, long outputSize,
+			int malformed) {
+	}
+}
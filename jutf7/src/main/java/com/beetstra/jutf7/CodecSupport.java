@@ -0,0 +1,129 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * <p>Platform dependent parts of the encoder and decoder: the bulk copying of characters 
+ * which are encoded directly, and the detection of JDKs needing a workaround.</p>
+ * 
+ * <p>This is the implementation used on Java 7 to 10. The jar is a multi-release jar; newer 
+ * JDKs load the version of this class in <code>META-INF/versions/11</code> or 
+ * <code>META-INF/versions/17</code> instead, which use faster means of copying. All 
+ * versions must behave identically.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class CodecSupport {
+	/**
+	 * True if running on a Sun JDK 1.4 or 1.5, which fail to flush encoders.
+	 * 
+	 * @see UTF7StyleCharsetEncoder#encodeLoop(CharBuffer, ByteBuffer)
+	 */
+	static final boolean FLUSH_HACK;
+	static {
+		String version = System.getProperty("java.specification.version");
+		String vendor = System.getProperty("java.vm.vendor");
+		FLUSH_HACK = ("1.4".equals(version) || "1.5".equals(version))
+				&& "Sun Microsystems Inc.".equals(vendor);
+	}
+
+	private CodecSupport() {
+	}
+
+	/**
+	 * <p>Copies the bytes at the start of the input which decode to themselves: US-ASCII 
+	 * bytes other than the shift character. Stops at the first other byte, when the input 
+	 * is exhausted or when the output is full. The positions of both buffers are 
+	 * advanced.</p>
+	 * 
+	 * <p>Only heap buffers are handled; for other buffers nothing is copied.</p>
+	 * 
+	 * @param in The input byte buffer
+	 * @param out The output character buffer
+	 * @param shift The shift character
+	 * @param blocks The arrays of the decoder, for versions copying through them
+	 * @return The number of bytes copied
+	 */
+	static int decodeDirect(ByteBuffer in, CharBuffer out, byte shift, CodecBlocks blocks) {
+		if (!in.hasArray() || !out.hasArray())
+			return 0;
+		byte[] src = in.array();
+		int sp = in.arrayOffset() + in.position();
+		char[] dst = out.array();
+		int dp = out.arrayOffset() + out.position();
+		int length = Math.min(in.remaining(), out.remaining());
+		int i = 0;
+		while (i < length) {
+			byte b = src[sp + i];
+			if (b < 0 || b == shift)
+				break;
+			dst[dp + i] = (char) b;
+			i++;
+		}
+		in.position(in.position() + i);
+		out.position(out.position() + i);
+		return i;
+	}
+
+	/**
+	 * <p>Copies the characters at the start of the input which are encoded directly, as 
+	 * specified by two bit sets. Stops at the first other character, when the input is 
+	 * exhausted or when the output is full. The positions of both buffers are advanced.</p>
+	 * 
+	 * <p>Only heap buffers are handled; for other buffers nothing is copied.</p>
+	 * 
+	 * @param in The input character buffer
+	 * @param out The output byte buffer
+	 * @param directLow Bit <code>ch</code> is set if the character <code>ch</code> (0-63) 
+	 *   is encoded directly
+	 * @param directHigh Bit <code>ch - 64</code> is set if the character <code>ch</code> 
+	 *   (64-127) is encoded directly
+	 * @param blocks The arrays of the encoder, for versions copying through them
+	 * @return The number of characters copied
+	 */
+	static int encodeDirect(CharBuffer in, ByteBuffer out, long directLow, long directHigh,
+			CodecBlocks blocks) {
+		if (!in.hasArray() || !out.hasArray())
+			return 0;
+		char[] src = in.array();
+		int sp = in.arrayOffset() + in.position();
+		byte[] dst = out.array();
+		int dp = out.arrayOffset() + out.position();
+		int length = Math.min(in.remaining(), out.remaining());
+		int i = 0;
+		while (i < length) {
+			char ch = src[sp + i];
+			if (ch >= 128 || ((ch < 64 ? directLow : directHigh) & (1L << ch)) == 0)
+				break;
+			dst[dp + i] = (byte) ch;
+			i++;
+		}
+		in.position(in.position() + i);
+		out.position(out.position() + i);
+		return i;
+	}
+}
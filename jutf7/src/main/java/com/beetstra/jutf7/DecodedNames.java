@@ -0,0 +1,132 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.CharBuffer;
+import java.util.BitSet;
+
+/**
+ * <p>The result of decoding a batch of modified UTF-7 mailbox names: the characters of all 
+ * names in one shared array, and a table of offsets into it. Strings are only created for 
+ * the names asked for.</p>
+ * 
+ * <p>Malformed sequences in a name are replaced by U+FFFD, and the name is flagged, so a 
+ * single broken name does not make the whole batch fail.</p>
+ * 
+ * @see ModifiedUTF7Charset#decodeNames(byte[], int[])
+ * @author Jaap Beetstra
+ */
+public final class DecodedNames {
+	private final char[] chars;
+	private final int[] offsets;
+	private final BitSet malformed;
+
+	DecodedNames(char[] chars, int[] offsets, BitSet malformed) {
+		this.chars = chars;
+		this.offsets = offsets;
+		this.malformed = malformed;
+	}
+
+	/**
+	 * @return The number of names
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the array holding the characters of all names. The array is shared, and must 
+	 * not be modified.
+	 * 
+	 * @return The character array
+	 */
+	public char[] getChars() {
+		return chars;
+	}
+
+	/**
+	 * @param index The index of the name
+	 * @return The offset of the first character of the name in {@link #getChars()}
+	 */
+	public int start(int index) {
+		checkIndex(index);
+		return offsets[index];
+	}
+
+	/**
+	 * @param index The index of the name
+	 * @return The offset just after the last character of the name in {@link #getChars()}
+	 */
+	public int end(int index) {
+		checkIndex(index);
+		return offsets[index + 1];
+	}
+
+	/**
+	 * @param index The index of the name
+	 * @return The number of characters of the name
+	 */
+	public int length(int index) {
+		checkIndex(index);
+		return offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * Creates a string holding the name.
+	 * 
+	 * @param index The index of the name
+	 * @return The decoded name
+	 */
+	public String get(int index) {
+		checkIndex(index);
+		return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+	}
+
+	/**
+	 * Returns a read-only view of the name, without copying its characters.
+	 * 
+	 * @param index The index of the name
+	 * @return The decoded name
+	 */
+	public CharSequence charSequence(int index) {
+		checkIndex(index);
+		return CharBuffer.wrap(chars, offsets[index], offsets[index + 1] - offsets[index])
+				.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @param index The index of the name
+	 * @return True if the name contained malformed sequences
+	 */
+	public boolean isMalformed(int index) {
+		checkIndex(index);
+		return malformed != null && malformed.get(index);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= offsets.length - 1)
+			throw new IndexOutOfBoundsException("index: " + index + ", size: "
+					+ (offsets.length - 1));
+	}
+}
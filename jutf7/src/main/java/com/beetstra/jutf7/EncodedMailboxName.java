@@ -0,0 +1,208 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>An IMAP mailbox name, stored in its modified UTF-7 encoded form. Only the encoded bytes 
+ * are kept; the name is decoded when {@link #toString()} is first called, and the result is 
+ * cached. For names using characters outside Latin-1 the encoded form takes about half the 
+ * memory of a <code>String</code>, and names which are never displayed are never 
+ * decoded.</p>
+ * 
+ * <p>Instances are immutable. Equality and hash code are based on the encoded bytes; since 
+ * modified UTF-7 has a single valid encoding for each name, this matches the equality of the 
+ * decoded names for correctly encoded input.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public final class EncodedMailboxName {
+	private final byte[] bytes;
+	private final boolean ascii;
+	private int hash;
+	private String decoded;
+
+	private EncodedMailboxName(byte[] bytes) {
+		this.bytes = bytes;
+		this.ascii = isAscii(bytes);
+	}
+
+	/**
+	 * Creates a mailbox name using the given array, which must not be modified afterwards.
+	 */
+	static EncodedMailboxName wrap(byte[] encoded) {
+		return new EncodedMailboxName(encoded);
+	}
+
+	/**
+	 * Creates a mailbox name using the given array, with its decoded form known.
+	 */
+	static EncodedMailboxName wrap(byte[] encoded, String decoded) {
+		EncodedMailboxName result = new EncodedMailboxName(encoded);
+		result.decoded = decoded;
+		return result;
+	}
+
+	/**
+	 * Creates a mailbox name from its encoded form.
+	 * 
+	 * @param encoded The modified UTF-7 encoded name; the array is copied
+	 * @return The mailbox name
+	 */
+	public static EncodedMailboxName fromEncoded(byte[] encoded) {
+		return new EncodedMailboxName(encoded.clone());
+	}
+
+	/**
+	 * Creates a mailbox name from its encoded form.
+	 * 
+	 * @param encoded An array holding the modified UTF-7 encoded name
+	 * @param offset The offset of the name in <code>encoded</code>
+	 * @param length The length of the encoded name
+	 * @return The mailbox name
+	 */
+	public static EncodedMailboxName fromEncoded(byte[] encoded, int offset, int length) {
+		if (offset < 0 || length < 0 || length > encoded.length - offset)
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+		byte[] bytes = new byte[length];
+		System.arraycopy(encoded, offset, bytes, 0, length);
+		return new EncodedMailboxName(bytes);
+	}
+
+	/**
+	 * Creates a mailbox name by encoding it. The decoded form is kept as well.
+	 * 
+	 * @param name The mailbox name
+	 * @return The mailbox name
+	 */
+	public static EncodedMailboxName fromString(String name) {
+		ByteBuffer encoded = UTF7Charsets.X_MODIFIED_UTF_7.encode(name);
+		byte[] bytes = new byte[encoded.remaining()];
+		encoded.get(bytes);
+		EncodedMailboxName result = new EncodedMailboxName(bytes);
+		result.decoded = name;
+		return result;
+	}
+
+	/**
+	 * Tells whether the name consists of US-ASCII characters other than '&amp;' only, in 
+	 * which case the encoded and decoded forms are the same. This is determined when the 
+	 * instance is created.
+	 * 
+	 * @return True if the name is plain US-ASCII
+	 */
+	public boolean isAscii() {
+		return ascii;
+	}
+
+	/**
+	 * @return The number of bytes in the encoded form
+	 */
+	public int encodedLength() {
+		return bytes.length;
+	}
+
+	/**
+	 * @return A copy of the encoded form
+	 */
+	public byte[] getEncoded() {
+		return bytes.clone();
+	}
+
+	/**
+	 * @return The encoded form itself, which must not be modified
+	 */
+	byte[] bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the decoded name. Malformed sequences in the encoded form are replaced by 
+	 * U+FFFD.
+	 * 
+	 * @return The decoded name
+	 */
+	public String toString() {
+		String result = decoded;
+		if (result == null) {
+			if (ascii) {
+				char[] chars = new char[bytes.length];
+				for (int i = 0; i < bytes.length; i++)
+					chars[i] = (char) bytes[i];
+				result = new String(chars);
+			} else
+				result = decode(bytes);
+			decoded = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes the name a unit at a time, which also replaces a base 64 sequence left 
+	 * unterminated at the end; <code>Charset.decode</code> fails on that instead.
+	 */
+	private static String decode(byte[] bytes) {
+		EncodedText text = UTF7Charsets.X_MODIFIED_UTF_7.text;
+		StringBuilder sb = new StringBuilder(bytes.length);
+		long state = EncodedText.start(0);
+		while (true) {
+			state = text.next(bytes, null, bytes.length, state);
+			if (!EncodedText.hasUnit(state))
+				return sb.toString();
+			sb.append(EncodedText.unit(state));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof EncodedMailboxName))
+			return false;
+		return Arrays.equals(bytes, ((EncodedMailboxName) obj).bytes);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int result = hash;
+		if (result == 0) {
+			result = Arrays.hashCode(bytes);
+			hash = result;
+		}
+		return result;
+	}
+
+	private static boolean isAscii(byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++)
+			if (bytes[i] < 0 || bytes[i] == '&')
+				return false;
+		return true;
+	}
+}
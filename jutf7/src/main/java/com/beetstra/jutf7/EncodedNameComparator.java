@@ -0,0 +1,128 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * <p>Orders modified UTF-7 encoded mailbox names as their decoded strings would be ordered 
+ * by {@link String#compareTo(String)}, that is by UTF-16 code unit, without decoding them. 
+ * Both names are decoded one unit at a time, stopping at the first difference, so 
+ * comparing does not allocate.</p>
+ * 
+ * <p>Only the sign of the result is meaningful. A name containing malformed sequences is 
+ * ordered as the string decoded with U+FFFD for each malformed sequence, as returned by 
+ * {@link DecodedNames#get(int)}.</p>
+ * 
+ * @see ModifiedUTF7Charset#nameComparator()
+ * @author Jaap Beetstra
+ */
+public final class EncodedNameComparator implements Comparator<byte[]> {
+	private final EncodedText text;
+	private final byte shift;
+
+	EncodedNameComparator(UTF7StyleCharset cs) {
+		this.text = cs.text;
+		this.shift = cs.shift();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+	 */
+	public int compare(byte[] a, byte[] b) {
+		return compare(a, 0, a.length, b, 0, b.length);
+	}
+
+	/**
+	 * <p>Compares two names stored in parts of byte arrays.</p>
+	 * 
+	 * @param a The array holding the first name
+	 * @param aOffset The offset of the first name
+	 * @param aLength The length of the first name
+	 * @param b The array holding the second name
+	 * @param bOffset The offset of the second name
+	 * @param bLength The length of the second name
+	 * @return A negative number, zero or a positive number if the first name is ordered 
+	 *   before, the same as or after the second
+	 */
+	public int compare(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+		UTF7StyleCharset.checkBounds(a, aOffset, aLength);
+		UTF7StyleCharset.checkBounds(b, bOffset, bLength);
+		return compare(a, null, aOffset, aOffset + aLength, b, null, bOffset, bOffset + bLength);
+	}
+
+	/**
+	 * <p>Compares the remaining bytes of two buffers. The positions of the buffers are not 
+	 * changed.</p>
+	 * 
+	 * @param a The buffer holding the first name
+	 * @param b The buffer holding the second name
+	 * @return A negative number, zero or a positive number if the first name is ordered 
+	 *   before, the same as or after the second
+	 */
+	public int compare(ByteBuffer a, ByteBuffer b) {
+		byte[] aArray = null;
+		int aStart = a.position();
+		if (a.hasArray()) {
+			aArray = a.array();
+			aStart += a.arrayOffset();
+		}
+		byte[] bArray = null;
+		int bStart = b.position();
+		if (b.hasArray()) {
+			bArray = b.array();
+			bStart += b.arrayOffset();
+		}
+		return compare(aArray, a, aStart, aStart + a.remaining(), bArray, b, bStart,
+				bStart + b.remaining());
+	}
+
+	private int compare(byte[] aBytes, ByteBuffer aBuffer, int aStart, int aEnd,
+			byte[] bBytes, ByteBuffer bBuffer, int bStart, int bEnd) {
+		// bytes up to the first shift decode to themselves
+		int common = Math.min(aEnd - aStart, bEnd - bStart);
+		int i = 0;
+		while (i < common) {
+			byte ab = aBytes != null ? aBytes[aStart + i] : aBuffer.get(aStart + i);
+			byte bb = bBytes != null ? bBytes[bStart + i] : bBuffer.get(bStart + i);
+			if (ab != bb || ab == shift)
+				break;
+			i++;
+		}
+		long aState = EncodedText.start(aStart + i);
+		long bState = EncodedText.start(bStart + i);
+		while (true) {
+			aState = text.next(aBytes, aBuffer, aEnd, aState);
+			bState = text.next(bBytes, bBuffer, bEnd, bState);
+			if (!EncodedText.hasUnit(aState))
+				return EncodedText.hasUnit(bState) ? -1 : 0;
+			if (!EncodedText.hasUnit(bState))
+				return 1;
+			int diff = EncodedText.unit(aState) - EncodedText.unit(bState);
+			if (diff != 0)
+				return diff;
+		}
+	}
+}
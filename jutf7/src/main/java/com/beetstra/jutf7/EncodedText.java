@@ -0,0 +1,304 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Reads the UTF-16 code units of encoded text one at a time, without decoding the text 
+ * into a buffer. Used to compare, hash and search encoded text, and by the step functions 
+ * of {@link UTF7StyleCharset} keeping the decoder state in an <code>int</code>.</p>
+ * 
+ * <p>The position and the decoder state are kept in a <code>long</code>, which is passed 
+ * to {@link #next(byte[], ByteBuffer, int, long)} and returned by it with the next unit 
+ * added, so reading does not allocate. The units are the ones 
+ * {@link UTF7StyleCharsetDecoder} produces, with malformed sequences (including an 
+ * unterminated base 64 sequence at the end) replaced by U+FFFD.</p>
+ * 
+ * <p>Layout of the state: the position in bits 0-31, four flags, the number of bits read 
+ * in bits 36-39, and whether a unit was read in bit 44. Between units the partially 
+ * decoded character has at most four bits set, kept in bits 40-43, and the unit is in 
+ * bits 48-63. A malformed sequence can be found halfway a character though; the 
+ * replacement unit is then flagged by bit 45, and bits 48-63 hold the partial 
+ * character. They hold it as well when no unit was read, at the end of the input.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class EncodedText {
+	private static final long POSITION = 0xFFFFFFFFL;
+	private static final long BASE64_MODE = 1L << 32;
+	private static final long JUST_SHIFTED = 1L << 33;
+	private static final long JUST_UNSHIFTED = 1L << 34;
+	private static final long PENDING_REPLACEMENT = 1L << 35;
+	private static final int BITS_READ_SHIFT = 36;
+	private static final int NIBBLE_SHIFT = 40;
+	private static final long NIBBLE = 0xFL << NIBBLE_SHIFT;
+	private static final long HAS_UNIT = 1L << 44;
+	private static final long REPLACED = 1L << 45;
+	private static final int UNIT_SHIFT = 48;
+	private static final long UNIT = 0xFFFFL << UNIT_SHIFT;
+	private static final char REPLACEMENT = '\uFFFD';
+	private final byte shift;
+	private final byte unshift;
+	private final boolean strict;
+	private final Base64Util base64;
+
+	EncodedText(UTF7StyleCharset cs) {
+		this.shift = cs.shift();
+		this.unshift = cs.unshift();
+		this.strict = cs.strict;
+		this.base64 = cs.base64;
+	}
+
+	/**
+	 * @param offset The position of the first byte
+	 * @return The state to start reading at <code>offset</code>
+	 */
+	static long start(int offset) {
+		return offset & POSITION;
+	}
+
+	/**
+	 * @param state A state returned by {@link #next(byte[], ByteBuffer, int, long)}
+	 * @return True if a unit was read, false if the end was reached
+	 */
+	static boolean hasUnit(long state) {
+		return (state & HAS_UNIT) != 0;
+	}
+
+	/**
+	 * @param state A state returned by {@link #next(byte[], ByteBuffer, int, long)}
+	 * @return The unit read
+	 */
+	static char unit(long state) {
+		if ((state & REPLACED) != 0)
+			return REPLACEMENT;
+		return (char) (state >>> UNIT_SHIFT);
+	}
+
+	/**
+	 * @param position The position of the byte terminating a complete base 64 sequence
+	 * @return The state to continue reading at <code>position</code>, as after reading the 
+	 *   sequence
+	 */
+	static long afterSequence(int position) {
+		return BASE64_MODE | position & POSITION;
+	}
+
+	/**
+	 * @param state A state
+	 * @return True if outside base 64, with no replacement pending: a byte read next, other 
+	 *   than the shift character, decodes to itself and leaves the state returned by 
+	 *   {@link #start(int)} for the following position
+	 */
+	static boolean isDirect(long state) {
+		return (state & (BASE64_MODE | PENDING_REPLACEMENT)) == 0;
+	}
+
+	/**
+	 * @param state A state
+	 * @return True if a shift character read next would start a base 64 sequence, rather 
+	 *   than being part of one or malformed
+	 */
+	boolean startsSequence(long state) {
+		return (state & (BASE64_MODE | PENDING_REPLACEMENT)) == 0
+				&& !(strict && (state & JUST_UNSHIFTED) != 0);
+	}
+
+	/**
+	 * @param state A state returned by {@link #next(byte[], ByteBuffer, int, long)}, having 
+	 *   a unit
+	 * @return True if the unit replaces a malformed sequence, rather than being decoded
+	 */
+	static boolean isMalformed(long state) {
+		return (state & REPLACED) != 0;
+	}
+
+	/**
+	 * @param state A state returned by {@link #next(byte[], ByteBuffer, int, long)}, having 
+	 *   a unit which is not malformed
+	 * @return True if the unit was decoded from base 64, false if it was encoded directly
+	 */
+	static boolean isBase64(long state) {
+		return (state & BASE64_MODE) != 0;
+	}
+
+	/**
+	 * @param state A state
+	 * @return The position of the next byte to read
+	 */
+	static int position(long state) {
+		return (int) state;
+	}
+
+	/**
+	 * <p>Returns the decoder state without the position, to be continued later using 
+	 * {@link #resume(int, int)}. The partially decoded character is moved to the upper 16 
+	 * bits, and the unit, if any, is dropped.</p>
+	 * 
+	 * @param state A state
+	 * @return The decoder state in an <code>int</code>; 0 is the initial state
+	 */
+	static int suspend(long state) {
+		if ((state & HAS_UNIT) != 0) {
+			if ((state & REPLACED) != 0)
+				state &= ~(HAS_UNIT | REPLACED);
+			else
+				state = (state & ~(HAS_UNIT | UNIT | NIBBLE))
+						| (state & NIBBLE) << (UNIT_SHIFT + 12 - NIBBLE_SHIFT);
+		}
+		return (int) (state >>> 32);
+	}
+
+	/**
+	 * @param state A decoder state returned by {@link #suspend(long)}
+	 * @param position The position of the next byte to read
+	 * @return The state to continue reading at <code>position</code>
+	 */
+	static long resume(int state, int position) {
+		return (long) state << 32 | position & POSITION;
+	}
+
+	/**
+	 * <p>Reads the next unit of a text which is complete.</p>
+	 * 
+	 * @param bytes The encoded text, or null to read from <code>buffer</code>
+	 * @param buffer The encoded text if <code>bytes</code> is null, read using absolute 
+	 *   positions
+	 * @param end The position after the last byte of the text
+	 * @param state The state returned by the previous call, or by {@link #start(int)}
+	 * @return The new state, having {@link #hasUnit(long)} true and the unit if one was read
+	 */
+	long next(byte[] bytes, ByteBuffer buffer, int end, long state) {
+		return next(bytes, buffer, end, state, true);
+	}
+
+	/**
+	 * <p>Reads the next unit.</p>
+	 * 
+	 * @param bytes The encoded text, or null to read from <code>buffer</code>
+	 * @param buffer The encoded text if <code>bytes</code> is null, read using absolute 
+	 *   positions
+	 * @param end The position after the last byte available
+	 * @param state The state returned by the previous call, or by {@link #start(int)}
+	 * @param endOfInput True if the text ends at <code>end</code>, false if more may follow
+	 * @return The new state, having {@link #hasUnit(long)} true and the unit if one was read
+	 */
+	long next(byte[] bytes, ByteBuffer buffer, int end, long state, boolean endOfInput) {
+		if ((state & PENDING_REPLACEMENT) != 0)
+			return replaced(state & ~(PENDING_REPLACEMENT | HAS_UNIT | UNIT), 0);
+		int position = (int) state;
+		boolean base64mode = (state & BASE64_MODE) != 0;
+		boolean justShifted = (state & JUST_SHIFTED) != 0;
+		boolean justUnshifted = (state & JUST_UNSHIFTED) != 0;
+		int bitsRead = (int) (state >>> BITS_READ_SHIFT) & 0xF;
+		int tempChar;
+		if ((state & REPLACED) != 0 || (state & HAS_UNIT) == 0)
+			tempChar = (int) (state >>> UNIT_SHIFT);
+		else
+			tempChar = ((int) (state >>> NIBBLE_SHIFT) & 0xF) << 12;
+		while (position < end) {
+			byte b = bytes != null ? bytes[position] : buffer.get(position);
+			position++;
+			if (base64mode) {
+				if (b == unshift) {
+					if (tempChar != 0 || bitsRead >= 6)
+						return replaced(pack(position, true, justShifted, justUnshifted, bitsRead),
+								tempChar);
+					if (justShifted)
+						return emit(pack(position, false, false, justUnshifted, 0), (char) shift);
+					justUnshifted = true;
+					base64mode = false;
+					bitsRead = 0;
+					tempChar = 0;
+				} else {
+					int sextet = base64.getSextet(b);
+					if (sextet >= 0) {
+						bitsRead += 6;
+						if (bitsRead < 16) {
+							tempChar += sextet << (16 - bitsRead);
+						} else {
+							bitsRead -= 16;
+							char unit = (char) (tempChar + (sextet >> bitsRead));
+							tempChar = (sextet << (16 - bitsRead)) & 0xFFFF;
+							return emit(pack(position, true, false, justUnshifted, bitsRead)
+									| (long) (tempChar >>> 12) << NIBBLE_SHIFT, unit);
+						}
+					} else {
+						if (strict)
+							return replaced(pack(position, true, justShifted, justUnshifted,
+									bitsRead), tempChar);
+						long next = pack(position, false, false, justUnshifted, 0);
+						if (tempChar != 0 || bitsRead >= 6)
+							next = pack(position, false, justShifted, justUnshifted, 0)
+									| PENDING_REPLACEMENT;
+						return emit(next, (char) b);
+					}
+				}
+				justShifted = false;
+			} else {
+				if (b == shift) {
+					base64mode = true;
+					if (justUnshifted && strict)
+						return replaced(pack(position, true, justShifted, justUnshifted, bitsRead),
+								tempChar);
+					justShifted = true;
+					continue;
+				}
+				return emit(pack(position, false, justShifted, false, 0), (char) b);
+			}
+		}
+		if (endOfInput && ((base64mode && strict) || tempChar != 0 || bitsRead >= 6))
+			return replaced(pack(position, false, false, false, 0), 0);
+		return pack(position, base64mode, justShifted, justUnshifted, bitsRead)
+				| (long) tempChar << UNIT_SHIFT;
+	}
+
+	/**
+	 * Packs the decoder state, except for the partially decoded character.
+	 */
+	private static long pack(int position, boolean base64mode, boolean justShifted,
+			boolean justUnshifted, int bitsRead) {
+		long state = position & POSITION;
+		if (base64mode)
+			state |= BASE64_MODE;
+		if (justShifted)
+			state |= JUST_SHIFTED;
+		if (justUnshifted)
+			state |= JUST_UNSHIFTED;
+		state |= (long) bitsRead << BITS_READ_SHIFT;
+		return state;
+	}
+
+	private static long emit(long state, char unit) {
+		return state | HAS_UNIT | ((long) unit << UNIT_SHIFT);
+	}
+
+	/**
+	 * Adds the replacement unit, keeping the partially decoded character in its place.
+	 */
+	private static long replaced(long state, int tempChar) {
+		return state | HAS_UNIT | REPLACED | ((long) tempChar << UNIT_SHIFT);
+	}
+}
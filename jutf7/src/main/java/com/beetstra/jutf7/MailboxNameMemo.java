@@ -0,0 +1,168 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>Remembers the encoded form of mailbox names which are sent over and over again, such as 
+ * the names in SELECT and STATUS commands. A name is looked up by the <code>String</code> 
+ * instance first, and then by equality, so a client passing the same instance each time 
+ * pays a single comparison.</p>
+ * 
+ * <p>The memo is a table of a fixed number of slots, one name per slot, shared by all 
+ * threads using it; a name taking the slot of another evicts it. Names are held by weak 
+ * references, so a name which is no longer used elsewhere does not stay in the memo, and 
+ * its slot is cleared on a later miss.</p>
+ * 
+ * @see ModifiedUTF7Charset#newNameMemo(int)
+ * @author Jaap Beetstra
+ */
+public final class MailboxNameMemo {
+	private final ModifiedUTF7Charset charset;
+	private final AtomicReferenceArray<Entry> slots;
+	private final int mask;
+	private final ReferenceQueue<String> queue = new ReferenceQueue<String>();
+	private final StripedCounter identityHits = new StripedCounter();
+	private final StripedCounter equalityHits = new StripedCounter();
+	private final StripedCounter misses = new StripedCounter();
+	private final StripedCounter evictions = new StripedCounter();
+
+	MailboxNameMemo(ModifiedUTF7Charset charset, int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("capacity: " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.charset = charset;
+		this.slots = new AtomicReferenceArray<Entry>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * <p>Encodes a mailbox name, or returns the encoded form remembered for it.</p>
+	 * 
+	 * @param name The mailbox name
+	 * @return The encoded name, shared by all callers encoding the same name
+	 */
+	public EncodedMailboxName encodeName(String name) {
+		int hash = name.hashCode();
+		int index = (hash ^ hash >>> 16) & mask;
+		Entry entry = slots.get(index);
+		if (entry != null) {
+			String key = entry.get();
+			if (key == name) {
+				identityHits.increment();
+				return entry.encoded;
+			}
+			if (key != null && entry.hash == hash && key.equals(name)) {
+				equalityHits.increment();
+				return entry.encoded;
+			}
+		}
+		misses.increment();
+		expungeStaleEntries();
+		ByteBuffer buffer = charset.encode(name);
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		// the decoded form is left out, as it would keep the name reachable
+		EncodedMailboxName encoded = EncodedMailboxName.wrap(bytes);
+		Entry previous = slots.getAndSet(index, new Entry(name, hash, index, encoded, queue));
+		if (previous != null && previous.get() != null)
+			evictions.increment();
+		return encoded;
+	}
+
+	/**
+	 * <p>Encodes a mailbox name, or returns the encoded form remembered for it.</p>
+	 * 
+	 * @param name The mailbox name
+	 * @return A read-only buffer holding the encoded name; the bytes are shared by all 
+	 *   callers encoding the same name, the position and limit are not
+	 */
+	public ByteBuffer encode(String name) {
+		return ByteBuffer.wrap(encodeName(name).bytes()).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return The number of slots, which is the capacity rounded up to a power of two
+	 */
+	public int slots() {
+		return slots.length();
+	}
+
+	/**
+	 * @return The number of lookups finding the same <code>String</code> instance
+	 */
+	public long identityHits() {
+		return identityHits.sum();
+	}
+
+	/**
+	 * @return The number of lookups finding an equal name
+	 */
+	public long equalityHits() {
+		return equalityHits.sum();
+	}
+
+	/**
+	 * @return The number of lookups encoding the name
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return The number of names evicted by another name while still in use
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	private void expungeStaleEntries() {
+		Reference<? extends String> reference;
+		while ((reference = queue.poll()) != null) {
+			Entry entry = (Entry) reference;
+			slots.compareAndSet(entry.index, entry, null);
+		}
+	}
+
+	private static final class Entry extends WeakReference<String> {
+		final int hash;
+		final int index;
+		final EncodedMailboxName encoded;
+
+		Entry(String name, int hash, int index, EncodedMailboxName encoded,
+				ReferenceQueue<String> queue) {
+			super(name, queue);
+			this.hash = hash;
+			this.index = index;
+			this.encoded = encoded;
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+
+/**
+ * <p>Reads a mailbox name from an IMAP response, in any of the three forms RFC 3501 allows: 
+ * an atom, a quoted string or a literal. The name is unescaped and decoded from modified 
+ * UTF-7 in one pass, straight from the network buffer into the caller's characters, 
+ * without intermediate strings or byte arrays.</p>
+ * 
+ * <p>A name may be split over any number of buffers, for instance a literal larger than 
+ * the read buffer. {@link #read(ByteBuffer, CharBuffer)} returns false when the buffer 
+ * is exhausted before the end of the name, keeping its state, and is called again with 
+ * the next buffer. Instances can be reused for the next name once a name is complete, and 
+ * are not safe for use by multiple threads.</p>
+ * 
+ * <p>Malformed modified UTF-7 is replaced by U+FFFD. Input that is not a mailbox name at 
+ * all is reported by a {@link MalformedInputException}.</p>
+ * 
+ * @see ModifiedUTF7Charset#newNameTokenizer()
+ * @see <a href="http://tools.ietf.org/html/rfc3501#section-9">RFC 3501, section 9</a>
+ * @author Jaap Beetstra
+ */
+public final class MailboxNameTokenizer {
+	private static final int START = 0;
+	private static final int ATOM = 1;
+	private static final int QUOTED = 2;
+	private static final int QUOTED_ESCAPE = 3;
+	private static final int LITERAL_LENGTH = 4;
+	private static final int LITERAL_CR = 5;
+	private static final int LITERAL_LF = 6;
+	private static final int LITERAL = 7;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	private final CharsetDecoder decoder;
+	private final ByteBuffer escaped = ByteBuffer.allocate(1);
+	private final CharBuffer chars = CharBuffer.allocate(128);
+	private int state = START;
+	private int literalLength;
+	private int literalDigits;
+
+	MailboxNameTokenizer(ModifiedUTF7Charset charset) {
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * <p>Reads (the rest of) a mailbox name, appending the decoded characters to a 
+	 * <code>StringBuilder</code>.</p>
+	 * 
+	 * @param in The response, positioned at the start of the name or, after an earlier 
+	 *   call returned false, at the rest of it
+	 * @param out The builder to append the name to
+	 * @return True if the name is complete, with <code>in</code> positioned just after it; 
+	 *   false if <code>in</code> was exhausted first
+	 * @throws MalformedInputException if the input is not an atom, quoted string or literal
+	 */
+	public boolean read(ByteBuffer in, StringBuilder out) throws MalformedInputException {
+		try {
+			return read(in, chars, out);
+		} finally {
+			drain(out);
+		}
+	}
+
+	/**
+	 * <p>Reads (the rest of) a mailbox name, putting the decoded characters into a 
+	 * character buffer, for instance one wrapping an array. Modified UTF-7 never decodes 
+	 * to more characters than it has bytes, so for a literal the buffer needs at most the 
+	 * length of the literal.</p>
+	 * 
+	 * @param in The response, positioned at the start of the name or, after an earlier 
+	 *   call returned false, at the rest of it
+	 * @param out The buffer to put the name into
+	 * @return True if the name is complete, with <code>in</code> positioned just after it; 
+	 *   false if <code>in</code> was exhausted first
+	 * @throws MalformedInputException if the input is not an atom, quoted string or literal
+	 * @throws BufferOverflowException if <code>out</code> is full before the name is; the 
+	 *   tokenizer must be {@link #reset()} before it is used again
+	 */
+	public boolean read(ByteBuffer in, CharBuffer out) throws MalformedInputException {
+		return read(in, out, null);
+	}
+
+	/**
+	 * Discards a partially read name, to start reading a new one.
+	 */
+	public void reset() {
+		state = START;
+		decoder.reset();
+		chars.clear();
+	}
+
+	private boolean read(ByteBuffer in, CharBuffer out, StringBuilder sb)
+			throws MalformedInputException {
+		while (in.hasRemaining()) {
+			int position = in.position();
+			byte b = in.get(position);
+			switch (state) {
+			case START:
+				if (b == '"') {
+					state = QUOTED;
+					in.position(position + 1);
+				} else if (b == '{') {
+					state = LITERAL_LENGTH;
+					literalLength = 0;
+					literalDigits = 0;
+					in.position(position + 1);
+				} else if (isAtomChar(b))
+					state = ATOM;
+				else
+					throw new MalformedInputException(1);
+				break;
+			case ATOM:
+				int end = position;
+				while (end < in.limit() && isAtomChar(in.get(end)))
+					end++;
+				decode(in, end, out, sb);
+				if (end < in.limit())
+					return finish(out, sb);
+				break;
+			case QUOTED:
+				end = position;
+				while (end < in.limit() && (b = in.get(end)) != '"' && b != '\\') {
+					if (b == '\r' || b == '\n' || b == 0) {
+						decode(in, end, out, sb);
+						throw new MalformedInputException(1);
+					}
+					end++;
+				}
+				decode(in, end, out, sb);
+				if (end < in.limit()) {
+					in.position(end + 1);
+					if (b == '"')
+						return finish(out, sb);
+					state = QUOTED_ESCAPE;
+				}
+				break;
+			case QUOTED_ESCAPE:
+				if (b != '"' && b != '\\')
+					throw new MalformedInputException(1);
+				in.position(position + 1);
+				escaped.clear();
+				escaped.put(b);
+				escaped.flip();
+				decode(escaped, 1, out, sb);
+				state = QUOTED;
+				break;
+			case LITERAL_LENGTH:
+				if (b >= '0' && b <= '9' && literalLength <= (Integer.MAX_VALUE - 9) / 10) {
+					literalLength = literalLength * 10 + b - '0';
+					literalDigits++;
+				} else if (b == '}' && literalDigits > 0)
+					state = LITERAL_CR;
+				else
+					throw new MalformedInputException(1);
+				in.position(position + 1);
+				break;
+			case LITERAL_CR:
+			case LITERAL_LF:
+				if (b != (state == LITERAL_CR ? '\r' : '\n'))
+					throw new MalformedInputException(1);
+				in.position(position + 1);
+				if (state == LITERAL_CR)
+					state = LITERAL_LF;
+				else if (literalLength == 0)
+					return finish(out, sb);
+				else
+					state = LITERAL;
+				break;
+			case LITERAL:
+				end = position + Math.min(literalLength, in.remaining());
+				decode(in, end, out, sb);
+				literalLength -= end - position;
+				if (literalLength == 0)
+					return finish(out, sb);
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Decodes the bytes of <code>in</code> up to <code>end</code>, as part of the name.
+	 */
+	private void decode(ByteBuffer in, int end, CharBuffer out, StringBuilder sb) {
+		int limit = in.limit();
+		in.limit(end);
+		try {
+			while (decoder.decode(in, out, false).isOverflow())
+				overflow(out, sb);
+		} finally {
+			in.limit(limit);
+		}
+	}
+
+	private boolean finish(CharBuffer out, StringBuilder sb) {
+		while (decoder.decode(EMPTY, out, true).isOverflow())
+			overflow(out, sb);
+		CoderResult result;
+		while ((result = decoder.flush(out)).isOverflow())
+			overflow(out, sb);
+		if (result.isError()) {
+			if (!out.hasRemaining())
+				overflow(out, sb);
+			out.put('\uFFFD');
+		}
+		decoder.reset();
+		state = START;
+		return true;
+	}
+
+	private void overflow(CharBuffer out, StringBuilder sb) {
+		if (sb == null)
+			throw new BufferOverflowException();
+		drain(sb);
+	}
+
+	private void drain(StringBuilder sb) {
+		chars.flip();
+		sb.append(chars);
+		chars.clear();
+	}
+
+	/**
+	 * @return True if the byte is an ASTRING-CHAR, that is an ATOM-CHAR or ']'
+	 */
+	private static boolean isAtomChar(byte b) {
+		if (b <= 0x20 || b == 0x7F)
+			return false;
+		switch (b) {
+		case '(':
+		case ')':
+		case '{':
+		case '%':
+		case '*':
+		case '"':
+		case '\\':
+			return false;
+		default:
+			return true;
+		}
+	}
+}
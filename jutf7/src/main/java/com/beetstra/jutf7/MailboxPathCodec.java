@@ -0,0 +1,347 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Encodes and decodes hierarchical IMAP mailbox paths, such as 
+ * <code>INBOX/Projects/2024</code>, one segment at a time. Since the hierarchy delimiter 
+ * is always encoded directly, each segment encodes independently of the others, and the 
+ * encoded path is the encoded segments joined by the delimiter.</p>
+ * 
+ * <p>Converted paths are kept in a trie, shared by all threads using the codec, with a node 
+ * for each path prefix holding both forms of that prefix. Converting a path only encodes 
+ * or decodes the segments following its longest known prefix, and a path converted before 
+ * costs one lookup per segment. The number of cached segments is limited; when a segment 
+ * is to be added beyond the limit, the trie is cleared and the conversion starts over, so 
+ * the cache fills again with the paths in use from then on. A path with more segments 
+ * than the limit is converted in full without being cached.</p>
+ * 
+ * <p>Renaming a mailbox does not require converting the paths of the mailboxes below it; 
+ * see {@link #rename(EncodedMailboxName, EncodedMailboxName, EncodedMailboxName)}.</p>
+ * 
+ * @see ModifiedUTF7Charset#pathCodec(char)
+ * @author Jaap Beetstra
+ */
+public final class MailboxPathCodec {
+	private final ModifiedUTF7Charset charset;
+	private final char delimiter;
+	private final int capacity;
+	private final AtomicReference<Trie> trie = new AtomicReference<Trie>(new Trie());
+
+	MailboxPathCodec(ModifiedUTF7Charset charset, char delimiter, int capacity) {
+		this.charset = charset;
+		this.delimiter = delimiter;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return The hierarchy delimiter
+	 */
+	public char delimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * @return The number of path segments in the cache
+	 */
+	public int cachedSegments() {
+		return trie.get().size.get();
+	}
+
+	/**
+	 * <p>Encodes a mailbox path.</p>
+	 * 
+	 * @param path The decoded path
+	 * @return The encoded path, which also holds <code>path</code> as its decoded form
+	 */
+	public EncodedMailboxName encode(String path) {
+		Trie full = trie.get();
+		EncodedMailboxName name = encode(path, full);
+		if (name == null) {
+			clear(full);
+			name = encode(path, trie.get());
+		}
+		return name != null ? name : EncodedMailboxName.fromString(path);
+	}
+
+	/**
+	 * @return The encoded path, or null if the trie is full
+	 */
+	private EncodedMailboxName encode(String path, Trie cache) {
+		Node node = cache.root;
+		int start = 0;
+		while (true) {
+			int end = path.indexOf(delimiter, start);
+			if (end < 0)
+				end = path.length();
+			String segment = path.substring(start, end);
+			Node child = node.byDecoded.get(segment);
+			if (child == null) {
+				child = add(cache, node, segment, encodeSegment(segment));
+				if (child == null)
+					return null;
+			}
+			node = child;
+			if (end == path.length())
+				return node.name;
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * <p>Decodes a mailbox path. Malformed sequences are replaced by U+FFFD.</p>
+	 * 
+	 * @param encoded The encoded path
+	 * @return The decoded path
+	 */
+	public String decode(byte[] encoded) {
+		return decode(encoded, 0, encoded.length);
+	}
+
+	/**
+	 * <p>Decodes a mailbox path stored in part of an array.</p>
+	 * 
+	 * @param encoded The array holding the encoded path
+	 * @param offset The offset of the encoded path
+	 * @param length The length of the encoded path
+	 * @return The decoded path
+	 * @see #decode(byte[])
+	 */
+	public String decode(byte[] encoded, int offset, int length) {
+		UTF7StyleCharset.checkBounds(encoded, offset, length);
+		int end = offset + length;
+		Trie full = trie.get();
+		String path = decode(encoded, offset, end, full);
+		if (path == null) {
+			clear(full);
+			path = decode(encoded, offset, end, trie.get());
+		}
+		return path != null ? path : decodeSegment(encoded, offset, end);
+	}
+
+	/**
+	 * @return The decoded path, or null if the trie is full
+	 */
+	private String decode(byte[] encoded, int offset, int end, Trie cache) {
+		Node node = cache.root;
+		Segment key = new Segment();
+		int start = offset;
+		while (true) {
+			int segmentEnd = start;
+			while (segmentEnd < end && encoded[segmentEnd] != delimiter)
+				segmentEnd++;
+			key.set(encoded, start, segmentEnd);
+			Node child = node.byEncoded.get(key);
+			if (child == null) {
+				String segment = decodeSegment(encoded, start, segmentEnd);
+				byte[] canonical = encodeSegment(segment);
+				// only correctly encoded segments are cached, keyed by their encoded form
+				if (!key.matches(canonical, 0, canonical.length))
+					return decodeSegment(encoded, offset, end);
+				child = node.byDecoded.get(segment);
+				if (child == null)
+					child = add(cache, node, segment, canonical);
+				if (child == null)
+					return null;
+			}
+			node = child;
+			if (segmentEnd == end)
+				return node.name.toString();
+			start = segmentEnd + 1;
+		}
+	}
+
+	/**
+	 * <p>Returns the path of a mailbox after renaming a mailbox above it, or the mailbox 
+	 * itself. Since segments are encoded independently, the encoded path is formed from the 
+	 * new name and the unchanged encoded segments below the renamed mailbox, without 
+	 * encoding anything.</p>
+	 * 
+	 * @param path The path of the mailbox
+	 * @param from The old path of the renamed mailbox
+	 * @param to The new path of the renamed mailbox
+	 * @return The new path of the mailbox
+	 * @throws IllegalArgumentException if <code>path</code> is neither <code>from</code> nor 
+	 *   a mailbox below it
+	 */
+	public EncodedMailboxName rename(EncodedMailboxName path, EncodedMailboxName from,
+			EncodedMailboxName to) {
+		byte[] pathBytes = path.bytes();
+		byte[] fromBytes = from.bytes();
+		if (!isAncestor(fromBytes, pathBytes))
+			throw new IllegalArgumentException(path + " is not in " + from);
+		byte[] toBytes = to.bytes();
+		int suffix = pathBytes.length - fromBytes.length;
+		byte[] bytes = new byte[toBytes.length + suffix];
+		System.arraycopy(toBytes, 0, bytes, 0, toBytes.length);
+		System.arraycopy(pathBytes, fromBytes.length, bytes, toBytes.length, suffix);
+		return EncodedMailboxName.wrap(bytes);
+	}
+
+	private boolean isAncestor(byte[] ancestor, byte[] path) {
+		if (path.length < ancestor.length)
+			return false;
+		for (int i = 0; i < ancestor.length; i++)
+			if (path[i] != ancestor[i])
+				return false;
+		return path.length == ancestor.length || path[ancestor.length] == delimiter;
+	}
+
+	/**
+	 * Replaces the trie by an empty one, unless another thread did so already.
+	 */
+	private void clear(Trie full) {
+		trie.compareAndSet(full, new Trie());
+	}
+
+	/**
+	 * Adds a node for a segment below <code>parent</code>, or returns the one added by 
+	 * another thread meanwhile.
+	 * 
+	 * @return The node, or null if the trie is full
+	 */
+	private Node add(Trie cache, Node parent, String segment, byte[] encoded) {
+		if (cache.size.incrementAndGet() > capacity) {
+			cache.size.decrementAndGet();
+			return null;
+		}
+		String decodedPath;
+		byte[] encodedPath;
+		if (parent == cache.root) {
+			decodedPath = segment;
+			encodedPath = encoded;
+		} else {
+			decodedPath = parent.name.toString() + delimiter + segment;
+			byte[] parentBytes = parent.name.bytes();
+			encodedPath = new byte[parentBytes.length + 1 + encoded.length];
+			System.arraycopy(parentBytes, 0, encodedPath, 0, parentBytes.length);
+			encodedPath[parentBytes.length] = (byte) delimiter;
+			System.arraycopy(encoded, 0, encodedPath, parentBytes.length + 1, encoded.length);
+		}
+		Node node = new Node(decodedPath, encodedPath);
+		Node existing = parent.byDecoded.putIfAbsent(segment, node);
+		if (existing != null) {
+			cache.size.decrementAndGet();
+			return existing;
+		}
+		Segment key = new Segment();
+		key.set(encoded, 0, encoded.length);
+		parent.byEncoded.put(key, node);
+		return node;
+	}
+
+	private byte[] encodeSegment(String segment) {
+		ByteBuffer buffer = charset.encode(segment);
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private String decodeSegment(byte[] encoded, int start, int end) {
+		StringBuilder sb = new StringBuilder(end - start);
+		long state = EncodedText.start(start);
+		while (true) {
+			state = charset.text.next(encoded, null, end, state);
+			if (!EncodedText.hasUnit(state))
+				return sb.toString();
+			sb.append(EncodedText.unit(state));
+		}
+	}
+
+	/**
+	 * The cached paths, and their number of segments.
+	 */
+	private static final class Trie {
+		final Node root = new Node(null, null);
+		final AtomicInteger size = new AtomicInteger();
+	}
+
+	/**
+	 * A path prefix, with the nodes for the paths one segment longer by decoded and by 
+	 * encoded segment.
+	 */
+	private static final class Node {
+		final EncodedMailboxName name;
+		final ConcurrentMap<String, Node> byDecoded = new ConcurrentHashMap<String, Node>();
+		final ConcurrentMap<Segment, Node> byEncoded = new ConcurrentHashMap<Segment, Node>();
+
+		Node(String decoded, byte[] encoded) {
+			this.name = encoded == null ? null : EncodedMailboxName.wrap(encoded, decoded);
+		}
+	}
+
+	/**
+	 * An encoded segment, as a range of an array. Decoding looks up each segment of the path 
+	 * with one of these set to its range of the input, so a known segment is found without 
+	 * copying it; the keys in the cache hold arrays of their own.
+	 */
+	private static final class Segment {
+		private byte[] bytes;
+		private int start;
+		private int end;
+		private int hash;
+
+		void set(byte[] bytes, int start, int end) {
+			this.bytes = bytes;
+			this.start = start;
+			this.end = end;
+			int hash = 1;
+			for (int i = start; i < end; i++)
+				hash = 31 * hash + bytes[i];
+			this.hash = hash;
+		}
+
+		boolean matches(byte[] other, int otherStart, int otherEnd) {
+			if (otherEnd - otherStart != end - start)
+				return false;
+			for (int i = start, j = otherStart; i < end; i++, j++)
+				if (bytes[i] != other[j])
+					return false;
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			return hash;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Segment))
+				return false;
+			Segment other = (Segment) obj;
+			return hash == other.hash && matches(other.bytes, other.start, other.end);
+		}
+	}
+}
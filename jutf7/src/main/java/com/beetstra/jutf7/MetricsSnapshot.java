@@ -0,0 +1,131 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+/**
+ * <p>The values of the metrics of a single UTF-7 style charset at a point in time. Since the 
+ * counters are updated concurrently, the values are not guaranteed to be mutually 
+ * consistent.</p>
+ * 
+ * @see UTF7Metrics#snapshot(java.nio.charset.Charset)
+ * @author Jaap Beetstra
+ */
+public final class MetricsSnapshot {
+	private final String charsetName;
+	private final long bytesIn;
+	private final long bytesOut;
+	private final long charsIn;
+	private final long charsOut;
+	private final long encodersCreated;
+	private final long decodersCreated;
+	private final long encodeOverflows;
+	private final long decodeOverflows;
+	private final long malformedInvalidBase64;
+	private final long malformedIncompleteBase64;
+	private final long malformedAdjacentBase64;
+	private final long malformedUnterminatedBase64;
+
+	MetricsSnapshot(CharsetMetricsMBean metrics) {
+		this.charsetName = metrics.getCharsetName();
+		this.bytesIn = metrics.getBytesIn();
+		this.bytesOut = metrics.getBytesOut();
+		this.charsIn = metrics.getCharsIn();
+		this.charsOut = metrics.getCharsOut();
+		this.encodersCreated = metrics.getEncodersCreated();
+		this.decodersCreated = metrics.getDecodersCreated();
+		this.encodeOverflows = metrics.getEncodeOverflows();
+		this.decodeOverflows = metrics.getDecodeOverflows();
+		this.malformedInvalidBase64 = metrics.getMalformedInvalidBase64();
+		this.malformedIncompleteBase64 = metrics.getMalformedIncompleteBase64();
+		this.malformedAdjacentBase64 = metrics.getMalformedAdjacentBase64();
+		this.malformedUnterminatedBase64 = metrics.getMalformedUnterminatedBase64();
+	}
+
+	public String getCharsetName() {
+		return charsetName;
+	}
+
+	public long getBytesIn() {
+		return bytesIn;
+	}
+
+	public long getBytesOut() {
+		return bytesOut;
+	}
+
+	public long getCharsIn() {
+		return charsIn;
+	}
+
+	public long getCharsOut() {
+		return charsOut;
+	}
+
+	public long getEncodersCreated() {
+		return encodersCreated;
+	}
+
+	public long getDecodersCreated() {
+		return decodersCreated;
+	}
+
+	public long getEncodeOverflows() {
+		return encodeOverflows;
+	}
+
+	public long getDecodeOverflows() {
+		return decodeOverflows;
+	}
+
+	public long getMalformedInvalidBase64() {
+		return malformedInvalidBase64;
+	}
+
+	public long getMalformedIncompleteBase64() {
+		return malformedIncompleteBase64;
+	}
+
+	public long getMalformedAdjacentBase64() {
+		return malformedAdjacentBase64;
+	}
+
+	public long getMalformedUnterminatedBase64() {
+		return malformedUnterminatedBase64;
+	}
+
+	/**
+	 * @return The total number of malformed sequences found, of any kind
+	 */
+	public long getMalformed() {
+		return malformedInvalidBase64 + malformedIncompleteBase64 + malformedAdjacentBase64
+				+ malformedUnterminatedBase64;
+	}
+
+	public String toString() {
+		return charsetName + "[bytesIn=" + bytesIn + ", charsOut=" + charsOut + ", charsIn="
+				+ charsIn + ", bytesOut=" + bytesOut + ", decoders=" + decodersCreated
+				+ ", encoders=" + encodersCreated + ", decodeOverflows=" + decodeOverflows
+				+ ", encodeOverflows=" + encodeOverflows + ", malformed=" + getMalformed() + "]";
+	}
+}
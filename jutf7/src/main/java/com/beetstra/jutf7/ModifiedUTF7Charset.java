@@ -0,0 +1,282 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.BitSet;
+
+/**
+ * <p>The character set specified in RFC 3501 to use for IMAP4rev1 mailbox name encoding.</p>
+ * 
+ * <p>Besides the standard charset methods, this class can decode many mailbox names at 
+ * once, such as those in the response to a LIST command; see 
+ * {@link #decodeNames(byte[], int[])}, and sort encoded names without decoding them; see 
+ * {@link #nameComparator()}. Hierarchical mailbox paths can be converted a segment at a 
+ * time using a {@link MailboxPathCodec}, and names in IMAP responses decoded as they are 
+ * read using a {@link MailboxNameTokenizer}. Names sent repeatedly can be encoded once 
+ * using a {@link MailboxNameMemo}. The instance is available as 
+ * {@link UTF7Charsets#X_MODIFIED_UTF_7}.</p>
+ * 
+ * @see <a href="http://tools.ietf.org/html/rfc3501">RFC 3501</a>
+ * @author Jaap Beetstra
+ */
+public class ModifiedUTF7Charset extends UTF7StyleCharset {
+	private static final String MODIFIED_BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			+ "abcdefghijklmnopqrstuvwxyz" + "0123456789+,";
+	private static final Base64Util BASE64 = new Base64Util(MODIFIED_BASE64_ALPHABET);
+	private final EncodedNameComparator nameComparator;
+
+	ModifiedUTF7Charset(String name, String[] aliases) {
+		super(name, aliases, BASE64, true);
+		this.nameComparator = new EncodedNameComparator(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.charset.Charset#newDecoder()
+	 */
+	public CharsetDecoder newDecoder() {
+		return new ModifiedUTF7Decoder(this, base64);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.charset.Charset#newEncoder()
+	 */
+	public CharsetEncoder newEncoder() {
+		return new ModifiedUTF7Encoder(this, base64);
+	}
+
+	/**
+	 * <p>Returns a comparator ordering encoded mailbox names the way 
+	 * {@link String#compareTo(String)} orders the decoded names. The comparator does not 
+	 * allocate, and can be shared between threads.</p>
+	 * 
+	 * @return The comparator
+	 */
+	public EncodedNameComparator nameComparator() {
+		return nameComparator;
+	}
+
+	/**
+	 * <p>Creates a tokenizer reading mailbox names from IMAP responses.</p>
+	 * 
+	 * @return A new tokenizer
+	 */
+	public MailboxNameTokenizer newNameTokenizer() {
+		return new MailboxNameTokenizer(this);
+	}
+
+	/**
+	 * <p>Creates a memo remembering the encoded form of up to <code>capacity</code> mailbox 
+	 * names.</p>
+	 * 
+	 * @param capacity The number of names to remember, rounded up to a power of two
+	 * @return A new memo
+	 * @throws IllegalArgumentException if the capacity is less than 1 or more than 2^30
+	 */
+	public MailboxNameMemo newNameMemo(int capacity) {
+		return new MailboxNameMemo(this, capacity);
+	}
+
+	/**
+	 * <p>Creates a codec for mailbox paths using the given hierarchy delimiter, caching at 
+	 * most 10000 path segments.</p>
+	 * 
+	 * @param delimiter The hierarchy delimiter, as returned by the LIST command
+	 * @return A new codec, with its own cache
+	 * @throws IllegalArgumentException if the delimiter is not a printable US-ASCII 
+	 *   character, or is '&amp;', '-' or a base 64 character
+	 * @see #pathCodec(char, int)
+	 */
+	public MailboxPathCodec pathCodec(char delimiter) {
+		return pathCodec(delimiter, 10000);
+	}
+
+	/**
+	 * <p>Creates a codec for mailbox paths using the given hierarchy delimiter. The 
+	 * delimiter must be encoded directly, and must not occur inside a base 64 sequence, so 
+	 * the segments of a path can be found in its encoded form.</p>
+	 * 
+	 * @param delimiter The hierarchy delimiter, as returned by the LIST command
+	 * @param capacity The maximum number of path segments to cache
+	 * @return A new codec, with its own cache
+	 * @throws IllegalArgumentException if the delimiter is not a printable US-ASCII 
+	 *   character, or is '&amp;', '-' or a base 64 character
+	 */
+	public MailboxPathCodec pathCodec(char delimiter, int capacity) {
+		if (!canEncodeDirectly(delimiter) || delimiter == unshift()
+				|| base64.contains(delimiter))
+			throw new IllegalArgumentException("unsupported delimiter: " + delimiter);
+		return new MailboxPathCodec(this, delimiter, capacity);
+	}
+
+	/**
+	 * <p>Decodes a batch of mailbox names stored one after the other in a byte array. Name 
+	 * <code>i</code> consists of the bytes from <code>offsets[i]</code> up to 
+	 * <code>offsets[i + 1]</code>, so <code>offsets</code> holds one element more than there 
+	 * are names.</p>
+	 * 
+	 * <p>All names are decoded into a single character array. Names consisting of US-ASCII 
+	 * characters other than '&amp;' only are copied without running the decoder.</p>
+	 * 
+	 * @param bytes The encoded names
+	 * @param offsets The offsets of the names in <code>bytes</code>, in ascending order
+	 * @return The decoded names
+	 * @throws IllegalArgumentException if <code>offsets</code> is empty, not ascending, or 
+	 *   points outside <code>bytes</code>
+	 */
+	public DecodedNames decodeNames(byte[] bytes, int[] offsets) {
+		if (offsets.length == 0)
+			throw new IllegalArgumentException("no offsets");
+		for (int i = 0; i < offsets.length; i++)
+			if (offsets[i] < (i == 0 ? 0 : offsets[i - 1]) || offsets[i] > bytes.length)
+				throw new IllegalArgumentException("invalid offset " + offsets[i] + " at " + i);
+		int count = offsets.length - 1;
+		NameDecoder decoder = new NameDecoder(offsets[count] - offsets[0], count);
+		for (int i = 0; i < count; i++)
+			decoder.decode(i, bytes, offsets[i], offsets[i + 1]);
+		return decoder.result();
+	}
+
+	/**
+	 * <p>Decodes a batch of mailbox names, each in its own byte array.</p>
+	 * 
+	 * @param names The encoded names
+	 * @return The decoded names
+	 * @see #decodeNames(byte[], int[])
+	 */
+	public DecodedNames decodeNames(byte[][] names) {
+		int total = 0;
+		for (int i = 0; i < names.length; i++)
+			total += names[i].length;
+		NameDecoder decoder = new NameDecoder(total, names.length);
+		for (int i = 0; i < names.length; i++)
+			decoder.decode(i, names[i], 0, names[i].length);
+		return decoder.result();
+	}
+
+	/**
+	 * <p>Decodes names into one character array. In modified UTF-7 a byte decodes to at most 
+	 * one character, and a malformed sequence replaced by U+FFFD is at least one byte long 
+	 * (a missing unshift at the end follows at least a shift), so the array is allocated 
+	 * with the number of bytes as its length.</p>
+	 * 
+	 * <p>The directly encoded bytes at the start of a name are copied by 
+	 * {@link CodecSupport#decodeDirect(ByteBuffer, CharBuffer, byte, CodecBlocks)}, which 
+	 * scans several bytes at a time on newer JDKs; the decoder takes over at the first 
+	 * other byte. Names sharing a byte array share the buffer wrapping it.</p>
+	 */
+	private final class NameDecoder {
+		private final char[] chars;
+		private final int[] offsets;
+		private final CharBuffer out;
+		private final CodecBlocks blocks = new CodecBlocks();
+		private int position;
+		private byte[] wrapped;
+		private ByteBuffer in;
+		private CharsetDecoder decoder;
+		private BitSet malformed;
+
+		NameDecoder(int byteCount, int nameCount) {
+			this.chars = new char[byteCount];
+			this.offsets = new int[nameCount + 1];
+			this.out = CharBuffer.wrap(chars);
+		}
+
+		void decode(int index, byte[] bytes, int start, int end) {
+			offsets[index] = position;
+			if (bytes != wrapped) {
+				wrapped = bytes;
+				in = ByteBuffer.wrap(bytes);
+			}
+			in.limit(end);
+			in.position(start);
+			out.position(position);
+			CodecSupport.decodeDirect(in, out, shift(), blocks);
+			position = out.position();
+			if (in.hasRemaining() && decodeWithDecoder()) {
+				if (malformed == null)
+					malformed = new BitSet();
+				malformed.set(index);
+			}
+			offsets[index + 1] = position;
+		}
+
+		/**
+		 * <p>Decodes the rest of the name, from the first byte which is not directly 
+		 * encoded.</p>
+		 * 
+		 * @return True if malformed sequences were found
+		 */
+		private boolean decodeWithDecoder() {
+			if (decoder == null)
+				decoder = newDecoder();
+			decoder.reset();
+			boolean found = false;
+			while (true) {
+				CoderResult result = decoder.decode(in, out, true);
+				if (result.isUnderflow())
+					break;
+				out.put('\uFFFD');
+				in.position(in.position() + result.length());
+				found = true;
+			}
+			if (decoder.flush(out).isError()) {
+				out.put('\uFFFD');
+				found = true;
+			}
+			position = out.position();
+			return found;
+		}
+
+		DecodedNames result() {
+			return new DecodedNames(chars, offsets, malformed);
+		}
+	}
+
+	boolean canEncodeDirectly(char ch) {
+		if (ch == shift())
+			return false;
+		return ch >= 0x20 && ch <= 0x7E;
+	}
+
+	byte shift() {
+		return '&';
+	}
+
+	byte unshift() {
+		return '-';
+	}
+
+	long directLow() {
+		return ModifiedUTF7Encoder.DIRECT_LOW;
+	}
+
+	long directHigh() {
+		return ModifiedUTF7Encoder.DIRECT_HIGH;
+	}
+}
@@ -23,32 +23,25 @@
  */
 package com.beetstra.jutf7;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
 
 /**
- * <p>The character set specified in RFC 3501 to use for IMAP4rev1 mailbox name encoding.</p>
+ * <p>The CharsetDecoder of modified UTF-7 (RFC 3501), 
+ * with the properties of the charset as constants.</p>
  * 
- * @see <a href="http://tools.ietf.org/html/rfc3501">RFC 3501</a>
  * @author Jaap Beetstra
  */
-class ModifiedUTF7Charset extends UTF7StyleCharset {
-	private static final String MODIFIED_BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
-			+ "abcdefghijklmnopqrstuvwxyz" + "0123456789+,";
-
-	ModifiedUTF7Charset(String name, String[] aliases) {
-		super(name, aliases, MODIFIED_BASE64_ALPHABET, true);
-	}
-
-	boolean canEncodeDirectly(char ch) {
-		if (ch == shift())
-			return false;
-		return ch >= 0x20 && ch <= 0x7E;
-	}
-
-	byte shift() {
-		return '&';
+final class ModifiedUTF7Decoder extends UTF7StyleCharsetDecoder {
+	ModifiedUTF7Decoder(UTF7StyleCharset cs, Base64Util base64) {
+		super(cs, base64, true);
 	}
 
-	byte unshift() {
-		return '-';
+	/* (non-Javadoc)
+	 * @see com.beetstra.jutf7.UTF7StyleCharsetDecoder#decodeBytes(java.nio.ByteBuffer, java.nio.CharBuffer)
+	 */
+	CoderResult decodeBytes(ByteBuffer in, CharBuffer out) {
+		return decodeBytes(in, out, (byte) '&', (byte) '-', true);
 	}
 }
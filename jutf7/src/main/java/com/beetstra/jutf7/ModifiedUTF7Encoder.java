@@ -0,0 +1,51 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+
+/**
+ * <p>The CharsetEncoder of modified UTF-7 (RFC 3501), 
+ * with the properties of the charset as constants.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class ModifiedUTF7Encoder extends UTF7StyleCharsetEncoder {
+	/** The printable US-ASCII characters, except the shift character */
+	static final long DIRECT_LOW = 0xFFFFFFBF00000000L;
+	static final long DIRECT_HIGH = 0x7FFFFFFFFFFFFFFFL;
+
+	ModifiedUTF7Encoder(UTF7StyleCharset cs, Base64Util base64) {
+		super(cs, base64);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.beetstra.jutf7.UTF7StyleCharsetEncoder#encodeChars(java.nio.CharBuffer, java.nio.ByteBuffer)
+	 */
+	CoderResult encodeChars(CharBuffer in, ByteBuffer out) {
+		return encodeChars(in, out, (byte) '&', (byte) '-', true, DIRECT_LOW, DIRECT_HIGH);
+	}
+}
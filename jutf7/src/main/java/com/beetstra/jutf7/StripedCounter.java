@@ -0,0 +1,74 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A counter spread over several cells, so threads counting at the same time rarely update 
+ * the same cell. It takes the place of <code>java.util.concurrent.atomic.LongAdder</code>, 
+ * which needs Java 8; the library itself runs on Java 7.</p>
+ * 
+ * <p>A thread picks its cell from its id. The cells are eight longs apart, which keeps them 
+ * on separate cache lines. The sum is not a snapshot: counts added while it is computed may 
+ * or may not be included.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class StripedCounter {
+	private static final int SPACING = 8;
+	private static final int MASK = stripes() - 1;
+	private final AtomicLongArray cells = new AtomicLongArray((MASK + 1) * SPACING);
+
+	/**
+	 * @return The number of cells; the number of processors rounded up to a power of two, at 
+	 *  most 64
+	 */
+	private static int stripes() {
+		int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+		return Integer.highestOneBit(processors * 2 - 1);
+	}
+
+	void add(long x) {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		cells.getAndAdd(((hash >>> 16) & MASK) * SPACING, x);
+	}
+
+	void increment() {
+		add(1);
+	}
+
+	long sum() {
+		long sum = 0;
+		for (int i = 0; i < cells.length(); i += SPACING)
+			sum += cells.get(i);
+		return sum;
+	}
+
+	void reset() {
+		for (int i = 0; i < cells.length(); i += SPACING)
+			cells.set(i, 0);
+	}
+}
@@ -0,0 +1,161 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Builds encoded text from fragments, as a <code>StringBuilder</code> builds a string. 
+ * Encoding each fragment separately would leave base 64 at the end of every fragment and 
+ * enter it again at the start of the next; the builder keeps the pending bits of base 64 
+ * between appends instead, so the result is the same as encoding the whole text at once. 
+ * Base 64 is only left in the bytes returned by {@link #toBytes()} and written by 
+ * {@link #writeTo(OutputStream)}; appending may continue after either.</p>
+ * 
+ * <p>The bytes are kept in a single array, which doubles in size when full. The characters 
+ * are read from the appended sequence one at a time, so appending does not allocate 
+ * unless the array grows. Builders are not safe for use by multiple threads.</p>
+ * 
+ * @see UTF7StyleCharset#newBuilder()
+ * @author Jaap Beetstra
+ */
+public final class UTF7Builder implements Appendable {
+	private final UTF7StyleCharset charset;
+	private final Base64Util base64;
+	private final byte shift;
+	private final byte unshift;
+	private final boolean strict;
+	private final long directLow;
+	private final long directHigh;
+	private final ByteBuffer tail = ByteBuffer.allocate(2);
+	private ByteBuffer out = ByteBuffer.allocate(16);
+	private int state;
+
+	UTF7Builder(UTF7StyleCharset charset) {
+		this.charset = charset;
+		this.base64 = charset.base64;
+		this.shift = charset.shift();
+		this.unshift = charset.unshift();
+		this.strict = charset.strict;
+		this.directLow = charset.directLow();
+		this.directHigh = charset.directHigh();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Appendable#append(java.lang.CharSequence)
+	 */
+	public UTF7Builder append(CharSequence csq) {
+		if (csq == null)
+			csq = "null";
+		return append(csq, 0, csq.length());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Appendable#append(java.lang.CharSequence, int, int)
+	 */
+	public UTF7Builder append(CharSequence csq, int start, int end) {
+		if (csq == null)
+			csq = "null";
+		if (start < 0 || start > end || end > csq.length())
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length "
+					+ csq.length());
+		for (int i = start; i < end; i++)
+			encode(csq.charAt(i));
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Appendable#append(char)
+	 */
+	public UTF7Builder append(char c) {
+		encode(c);
+		return this;
+	}
+
+	private void encode(char ch) {
+		if (out.remaining() < 4)
+			grow();
+		state = UTF7StyleCharsetEncoder.encode(state, ch, out, base64, shift, unshift, strict,
+				directLow, directHigh);
+	}
+
+	private void grow() {
+		ByteBuffer larger = ByteBuffer.allocate(out.capacity() * 2);
+		out.flip();
+		larger.put(out);
+		out = larger;
+	}
+
+	/**
+	 * @return The number of bytes returned by {@link #toBytes()}
+	 */
+	public int length() {
+		return out.position() + end();
+	}
+
+	/**
+	 * <p>Returns the encoded text, leaving base 64 at the end if necessary.</p>
+	 * 
+	 * @return A new array holding the encoded text
+	 */
+	public byte[] toBytes() {
+		int length = out.position();
+		byte[] bytes = new byte[length + end()];
+		System.arraycopy(out.array(), 0, bytes, 0, length);
+		System.arraycopy(tail.array(), 0, bytes, length, tail.position());
+		return bytes;
+	}
+
+	/**
+	 * <p>Writes the encoded text, leaving base 64 at the end if necessary.</p>
+	 * 
+	 * @param stream The stream to write to
+	 * @throws IOException if the stream throws it
+	 */
+	public void writeTo(OutputStream stream) throws IOException {
+		stream.write(out.array(), 0, out.position());
+		stream.write(tail.array(), 0, end());
+	}
+
+	/**
+	 * <p>Removes the text appended so far, keeping the array.</p>
+	 */
+	public void clear() {
+		out.clear();
+		state = 0;
+	}
+
+	/**
+	 * Puts the bytes leaving base 64 in the tail buffer, without changing the state.
+	 * 
+	 * @return The number of bytes
+	 */
+	private int end() {
+		tail.clear();
+		charset.encodeEnd(state, tail);
+		return tail.position();
+	}
+}
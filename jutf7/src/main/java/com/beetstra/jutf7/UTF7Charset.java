@@ -23,29 +23,68 @@
  */
 package com.beetstra.jutf7;
 
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+
 /**
  * <p>The character set specified in RFC 2152. Two variants are supported using the encodeOptional
  * constructor flag</p>
  * 
+ * <p>The instances are available as {@link UTF7Charsets#UTF_7} and 
+ * {@link UTF7Charsets#X_UTF_7_OPTIONAL}.</p>
+ * 
  * @see <a href="http://tools.ietf.org/html/rfc2152">RFC 2152</a>
  * @author Jaap Beetstra
  */
-class UTF7Charset extends UTF7StyleCharset {
+public class UTF7Charset extends UTF7StyleCharset {
 	private static final String BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
 			+ "abcdefghijklmnopqrstuvwxyz" + "0123456789+/";
+	private static final Base64Util BASE64 = new Base64Util(BASE64_ALPHABET);
 	private static final String SET_D = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789'(),-./:?";
 	private static final String SET_O = "!\"#$%&*;<=>@[]^_`{|}";
 	private static final String RULE_3 = " \t\r\n";
 	final String directlyEncoded;
+	private final boolean includeOptional;
 
 	UTF7Charset(String name, String[] aliases, boolean includeOptional) {
-		super(name, aliases, BASE64_ALPHABET, false);
+		super(name, aliases, BASE64, false);
+		this.includeOptional = includeOptional;
 		if (includeOptional)
 			this.directlyEncoded = SET_D + SET_O + RULE_3;
 		else
 			this.directlyEncoded = SET_D + RULE_3;
 	}
 
+	/* (non-Javadoc)
+	 * @see java.nio.charset.Charset#newDecoder()
+	 */
+	public CharsetDecoder newDecoder() {
+		return new UTF7Decoder(this, base64);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.charset.Charset#newEncoder()
+	 */
+	public CharsetEncoder newEncoder() {
+		if (includeOptional)
+			return new UTF7OptionalEncoder(this, base64);
+		return new UTF7Encoder(this, base64);
+	}
+
+	/**
+	 * <p>Creates an encoder producing the shortest encoding, rather than leaving base 64 at 
+	 * every directly encodable character. At such a character the encoder looks ahead up 
+	 * to 32 characters, and stays in base 64 if that gives fewer bytes, as it often does 
+	 * for spaces and punctuation between non-ASCII characters. The result is valid UTF-7, 
+	 * decoded by any decoder to the same characters. Modified UTF-7 has no such choice, 
+	 * since it requires printable characters to be encoded directly.</p>
+	 * 
+	 * @return A new encoder
+	 */
+	public CharsetEncoder newCompactEncoder() {
+		return new UTF7CompactEncoder(this, base64, directLow(), directHigh());
+	}
+
 	/* (non-Javadoc)
 	 * @see com.beetstra.jutf7.UTF7StyleCharset#canEncodeDirectly(char)
 	 */
@@ -66,4 +105,18 @@ class UTF7Charset extends UTF7StyleCharset {
 	byte unshift() {
 		return '-';
 	}
+
+	/* (non-Javadoc)
+	 * @see com.beetstra.jutf7.UTF7StyleCharset#directLow()
+	 */
+	long directLow() {
+		return includeOptional ? UTF7OptionalEncoder.DIRECT_LOW : UTF7Encoder.DIRECT_LOW;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.beetstra.jutf7.UTF7StyleCharset#directHigh()
+	 */
+	long directHigh() {
+		return includeOptional ? UTF7OptionalEncoder.DIRECT_HIGH : UTF7Encoder.DIRECT_HIGH;
+	}
 }
@@ -0,0 +1,57 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.charset.Charset;
+
+/**
+ * <p>Constant definitions for the charsets provided by this library, for use instead of 
+ * {@link Charset#forName(String)} and the lookup through all installed charset providers 
+ * it implies. These are the same instances {@link CharsetProvider} returns.</p>
+ * 
+ * <p>Using this class creates all three charsets. The provider creates each one only when 
+ * it is first asked for.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public final class UTF7Charsets {
+	/**
+	 * UTF-7 as specified in RFC 2152, only directly encoding the characters of Set D.
+	 */
+	public static final UTF7Charset UTF_7 = (UTF7Charset) CharsetProvider.UTF7Holder.CHARSET;
+	/**
+	 * UTF-7 as specified in RFC 2152, also directly encoding the optional characters of 
+	 * Set O.
+	 */
+	public static final UTF7Charset X_UTF_7_OPTIONAL = (UTF7Charset)
+			CharsetProvider.UTF7OptionalHolder.CHARSET;
+	/**
+	 * Modified UTF-7, as specified in RFC 3501 for IMAP mailbox names.
+	 */
+	public static final ModifiedUTF7Charset X_MODIFIED_UTF_7 = (ModifiedUTF7Charset)
+			CharsetProvider.ModifiedUTF7Holder.CHARSET;
+
+	private UTF7Charsets() {
+	}
+}
@@ -0,0 +1,213 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+
+/**
+ * <p>Converts bytes from one UTF-7 style charset to another, typically from UTF-7 (RFC 2152) 
+ * to IMAP modified UTF-7 (RFC 3501) or back, without decoding to an intermediate string.</p>
+ * 
+ * <p>Characters which are directly encoded in both charsets are copied as is. A base 64 
+ * sequence in the input is copied by mapping each character to the other alphabet, as long as 
+ * none of the characters it encodes has to be directly encoded in the target charset; 
+ * otherwise it is decoded one UTF-16 unit at a time and re-encoded. The input is read by 
+ * {@link EncodedText} and written by the encoder of the target charset, so the result is 
+ * the same as decoding the input and encoding it again using the target charset.</p>
+ * 
+ * <p>Instances are immutable and can be shared by multiple threads.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public final class UTF7Converter {
+	/**
+	 * The maximum number of bytes written for a single input byte: a character which is 
+	 * directly encoded in the input charset, but needs a base 64 sequence of its own in the 
+	 * target charset.
+	 */
+	private static final int MAX_BYTES_PER_BYTE = 5;
+	private final EncodedText fromText;
+	private final Base64Util fromBase64;
+	private final byte fromShift;
+	private final String fromName;
+	private final Base64Util toBase64;
+	private final byte toShift;
+	private final byte toUnshift;
+	private final boolean toStrict;
+	private final long toDirectLow;
+	private final long toDirectHigh;
+
+	/**
+	 * @param from The charset of the input, one of the UTF-7 style charsets
+	 * @param to The charset of the output, one of the UTF-7 style charsets
+	 * @throws IllegalArgumentException if either charset is not a UTF-7 style charset
+	 */
+	public UTF7Converter(Charset from, Charset to) {
+		UTF7StyleCharset source = checkCharset(from);
+		UTF7StyleCharset target = checkCharset(to);
+		this.fromText = source.text;
+		this.fromBase64 = source.base64;
+		this.fromShift = source.shift();
+		this.fromName = source.name();
+		this.toBase64 = target.base64;
+		this.toShift = target.shift();
+		this.toUnshift = target.unshift();
+		this.toStrict = target.strict;
+		this.toDirectLow = target.directLow();
+		this.toDirectHigh = target.directHigh();
+	}
+
+	private static UTF7StyleCharset checkCharset(Charset charset) {
+		if (!(charset instanceof UTF7StyleCharset))
+			throw new IllegalArgumentException("not a UTF-7 style charset: " + charset);
+		return (UTF7StyleCharset) charset;
+	}
+
+	/**
+	 * @param src The bytes to convert
+	 * @return The converted bytes
+	 * @throws MalformedInputException if the input is not valid in the input charset
+	 */
+	public byte[] convert(byte[] src) throws CharacterCodingException {
+		return convert(src, 0, src.length);
+	}
+
+	/**
+	 * <p>Converts the input, rejecting malformed input in the same cases the decoder of the 
+	 * input charset would report it.</p>
+	 * 
+	 * @param src The array containing the bytes to convert
+	 * @param offset The offset of the first byte to convert
+	 * @param length The number of bytes to convert
+	 * @return The converted bytes
+	 * @throws MalformedInputException if the input is not valid in the input charset
+	 */
+	public byte[] convert(byte[] src, int offset, int length) throws CharacterCodingException {
+		if (offset < 0 || length < 0 || offset > src.length - length)
+			throw new IndexOutOfBoundsException();
+		Object event = CodecEvents.INSTANCE.beginDecode();
+		try {
+			byte[] result = convertBytes(src, offset, length);
+			if (event != null)
+				CodecEvents.INSTANCE.endDecode(event, fromName, length, result.length, 0);
+			return result;
+		} catch (CharacterCodingException e) {
+			if (event != null)
+				CodecEvents.INSTANCE.endDecode(event, fromName, length, 0, 1);
+			throw e;
+		}
+	}
+
+	private byte[] convertBytes(byte[] src, int offset, int length)
+			throws CharacterCodingException {
+		ByteBuffer out = ByteBuffer.allocate(length * MAX_BYTES_PER_BYTE);
+		int state = 0;
+		int end = offset + length;
+		long read = EncodedText.start(offset);
+		while (true) {
+			int position = EncodedText.position(read);
+			if (state == 0 && position < end && src[position] == fromShift
+					&& fromText.startsSequence(read)) {
+				int terminator = copyBase64(src, position + 1, end, out);
+				if (terminator >= 0) {
+					state = copiedState(src, position + 1, terminator);
+					read = EncodedText.afterSequence(terminator);
+					continue;
+				}
+			}
+			read = fromText.next(src, null, end, read);
+			if (!EncodedText.hasUnit(read))
+				break;
+			if (EncodedText.isMalformed(read))
+				throw new MalformedInputException(1);
+			state = UTF7StyleCharsetEncoder.encode(state, EncodedText.unit(read), out, toBase64,
+					toShift, toUnshift, toStrict, toDirectLow, toDirectHigh);
+		}
+		UTF7StyleCharsetEncoder.end(state, out, toBase64, toUnshift);
+		byte[] result = new byte[out.position()];
+		System.arraycopy(out.array(), 0, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * <p>Copies the base 64 sequence starting at <code>start</code> by mapping each 
+	 * character to the target alphabet. This is only possible if the target is not in 
+	 * <i>base 64 mode</i> yet, so the bits of both sequences line up, and if all encoded 
+	 * characters would be base 64 encoded in the target charset as well. The bits of the 
+	 * last, incomplete sextet are not written; see 
+	 * {@link #copiedState(byte[], int, int)}.</p>
+	 * 
+	 * @param src The input
+	 * @param start The position just after the shift character
+	 * @param end The end of the input
+	 * @param out The output, in direct mode
+	 * @return The position of the character terminating the sequence, or -1 if the 
+	 *  sequence was not copied
+	 */
+	private int copyBase64(byte[] src, int start, int end, ByteBuffer out) {
+		int units = 0;
+		int bits = 0;
+		int unit = 0;
+		int i = start;
+		for (; i < end; i++) {
+			int value = fromBase64.getSextet(src[i]);
+			if (value < 0)
+				break;
+			bits += 6;
+			if (bits < 16) {
+				unit += value << (16 - bits);
+			} else {
+				bits -= 16;
+				unit += value >> bits;
+				if ((unit < 128 && ((unit < 64 ? toDirectLow : toDirectHigh) & (1L << unit)) != 0)
+						|| (units == 0 && unit == toShift))
+					return -1;
+				units++;
+				unit = (value << (16 - bits)) & 0xFFFF;
+			}
+		}
+		if (units == 0 || unit != 0 || bits >= 6)
+			return -1;
+		out.put(toShift);
+		int complete = units * 16 / 6;
+		for (int j = start; j < start + complete; j++)
+			out.put(toBase64.getChar(fromBase64.getSextet(src[j])));
+		return i;
+	}
+
+	/**
+	 * @return The state of the target encoder after copying the sequence from 
+	 *   <code>start</code> to <code>terminator</code>, holding the bits of the last 
+	 *   incomplete sextet
+	 */
+	private int copiedState(byte[] src, int start, int terminator) {
+		int unitBits = (terminator - start) * 6 / 16 * 16;
+		int bitsToOutput = unitBits % 6;
+		int sextet = bitsToOutput == 0 ? 0 : fromBase64.getSextet(src[start + unitBits / 6]);
+		return UTF7StyleCharsetEncoder.base64State(bitsToOutput, sextet);
+	}
+}
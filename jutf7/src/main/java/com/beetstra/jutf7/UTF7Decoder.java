@@ -23,24 +23,25 @@
  */
 package com.beetstra.jutf7;
 
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
 
-abstract class CharsetTestUtil {
-	static void outToSB(ByteBuffer out, StringBuffer sb) throws UnsupportedEncodingException {
-		out.flip();
-		sb.append(CharsetTestUtil.asString(out));
-		out.clear();
-	}
-
-	static String asString(ByteBuffer buffer) throws UnsupportedEncodingException {
-		byte[] bytes = new byte[buffer.limit()];
-		buffer.get(bytes);
-		return new String(bytes, "US-ASCII");
+/**
+ * <p>The CharsetDecoder of both variants of UTF-7 (RFC 2152), 
+ * with the properties of the charset as constants.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class UTF7Decoder extends UTF7StyleCharsetDecoder {
+	UTF7Decoder(UTF7StyleCharset cs, Base64Util base64) {
+		super(cs, base64, false);
 	}
 
-	static ByteBuffer wrap(String string) throws UnsupportedEncodingException {
-		byte[] bytes = string.getBytes("US-ASCII");
-		return ByteBuffer.wrap(bytes);
+	/* (non-Javadoc)
+	 * @see com.beetstra.jutf7.UTF7StyleCharsetDecoder#decodeBytes(java.nio.ByteBuffer, java.nio.CharBuffer)
+	 */
+	CoderResult decodeBytes(ByteBuffer in, CharBuffer out) {
+		return decodeBytes(in, out, (byte) '+', (byte) '-', false);
 	}
 }
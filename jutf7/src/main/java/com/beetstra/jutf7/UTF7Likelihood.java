@@ -0,0 +1,102 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+/**
+ * <p>How likely it is that bytes are text in a UTF-7 style charset, as found by 
+ * {@link UTF7StyleCharset#likelihood(byte[], int, int)}. Used to sniff mislabelled input 
+ * before decoding it.</p>
+ * 
+ * <p>Bytes which cannot be decoded without errors, including any byte of 0x80 or above, are 
+ * not possible. Otherwise the evidence is in the base 64 sequences: each unit they decode 
+ * to counts for the charset, unless an encoder of the charset would not have put it there, 
+ * such as a letter or an unpaired surrogate. The confidence is the number of units for 
+ * the charset divided by the number of units plus one, so a single non-ASCII character 
+ * gives 0.5, and it grows towards 1 with each further one.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public final class UTF7Likelihood {
+	static final UTF7Likelihood IMPOSSIBLE = new UTF7Likelihood(false, 0, 0, 0);
+	private final boolean possible;
+	private final int units;
+	private final int nonAsciiUnits;
+	private final int suspiciousUnits;
+
+	UTF7Likelihood(boolean possible, int units, int nonAsciiUnits, int suspiciousUnits) {
+		this.possible = possible;
+		this.units = units;
+		this.nonAsciiUnits = nonAsciiUnits;
+		this.suspiciousUnits = suspiciousUnits;
+	}
+
+	/**
+	 * @return True if the bytes decode without errors
+	 */
+	public boolean isPossible() {
+		return possible;
+	}
+
+	/**
+	 * @return The confidence that the bytes are in the charset, from 0 to 1; 0 if they are 
+	 *   not possible, or if they have no base 64 sequences and decode as US-ASCII would
+	 */
+	public float getConfidence() {
+		int evidence = units - suspiciousUnits;
+		if (!possible || evidence <= 0)
+			return 0;
+		return evidence / (units + 1f);
+	}
+
+	/**
+	 * @return The number of UTF-16 code units of 0x80 and above in the base 64 sequences
+	 */
+	public int getNonAsciiUnits() {
+		return nonAsciiUnits;
+	}
+
+	/**
+	 * @return The number of UTF-16 code units in the base 64 sequences
+	 */
+	public int getUnits() {
+		return units;
+	}
+
+	/**
+	 * @return The number of units an encoder of the charset would not have encoded in base 64
+	 */
+	public int getSuspiciousUnits() {
+		return suspiciousUnits;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (!possible)
+			return "impossible";
+		return "confidence " + getConfidence() + " (" + units + " units, " + nonAsciiUnits
+				+ " non-ASCII, " + suspiciousUnits + " suspicious)";
+	}
+}
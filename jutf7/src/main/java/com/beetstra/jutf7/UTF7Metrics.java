@@ -0,0 +1,132 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * <p>Runtime metrics for the UTF-7 style charsets: the amount of data encoded and decoded, 
+ * the number of encoders and decoders created, the number of times an encode or decode loop 
+ * returned because the output buffer was full, and the number of malformed sequences found, 
+ * by kind.</p>
+ * 
+ * <p>Metrics are disabled by default. They can be enabled by setting the system property 
+ * <code>com.beetstra.jutf7.metrics</code> to <code>true</code>, by calling 
+ * {@link #setEnabled(boolean)}, or through JMX once {@link #registerMBeans()} has been 
+ * called. Each charset is registered as an MBean named 
+ * <code>com.beetstra.jutf7:type=CharsetMetrics,name=&lt;charset name&gt;</code>.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public final class UTF7Metrics {
+	static final String DOMAIN = "com.beetstra.jutf7";
+
+	private UTF7Metrics() {
+	}
+
+	/**
+	 * @return True if metrics are being collected
+	 */
+	public static boolean isEnabled() {
+		return CharsetMetrics.enabled;
+	}
+
+	/**
+	 * Starts or stops collecting metrics. Counters keep their values while disabled.
+	 */
+	public static void setEnabled(boolean enabled) {
+		CharsetMetrics.enabled = enabled;
+	}
+
+	/**
+	 * @param charset One of the UTF-7 style charsets
+	 * @return The current values of the metrics of the charset, or null if charset is not a 
+	 *  UTF-7 style charset
+	 */
+	public static MetricsSnapshot snapshot(Charset charset) {
+		if (!(charset instanceof UTF7StyleCharset))
+			return null;
+		return ((UTF7StyleCharset) charset).metrics.snapshot();
+	}
+
+	/**
+	 * @return The current values of the metrics of all UTF-7 style charsets created so far
+	 */
+	public static List<MetricsSnapshot> snapshots() {
+		List<MetricsSnapshot> snapshots = new ArrayList<MetricsSnapshot>();
+		for (Iterator<CharsetMetrics> iter = CharsetMetrics.all().iterator(); iter.hasNext();)
+			snapshots.add(iter.next().snapshot());
+		return snapshots;
+	}
+
+	/**
+	 * Resets the counters of all charsets to zero.
+	 */
+	public static void reset() {
+		for (Iterator<CharsetMetrics> iter = CharsetMetrics.all().iterator(); iter.hasNext();)
+			iter.next().reset();
+	}
+
+	/**
+	 * <p>Registers an MBean for each of the charsets of {@link CharsetProvider} with the 
+	 * platform MBean server. Registering again has no effect.</p>
+	 * 
+	 * @throws JMException if the MBean server rejects a registration
+	 */
+	public static void registerMBeans() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (Iterator<Charset> iter = new CharsetProvider().charsets(); iter.hasNext();) {
+			CharsetMetrics metrics = ((UTF7StyleCharset) iter.next()).metrics;
+			ObjectName name = objectName(metrics.getCharsetName());
+			if (!server.isRegistered(name))
+				server.registerMBean(new StandardMBean(metrics, CharsetMetricsMBean.class), name);
+		}
+	}
+
+	/**
+	 * Removes the MBeans registered by {@link #registerMBeans()}.
+	 * 
+	 * @throws JMException if the MBean server rejects the removal
+	 */
+	public static void unregisterMBeans() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (Iterator<Charset> iter = new CharsetProvider().charsets(); iter.hasNext();) {
+			ObjectName name = objectName(iter.next().name());
+			if (server.isRegistered(name))
+				server.unregisterMBean(name);
+		}
+	}
+
+	static ObjectName objectName(String charsetName) throws JMException {
+		return new ObjectName(DOMAIN + ":type=CharsetMetrics,name=" + charsetName);
+	}
+}
@@ -0,0 +1,136 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * <p>Reads characters from a byte channel, decoding the bytes read into a reusable direct 
+ * buffer straight into the buffer of the caller. This replaces an 
+ * <code>InputStreamReader</code> around <code>Channels.newInputStream</code>.</p>
+ * 
+ * <p>The channel is only read when no characters can be decoded from the bytes already 
+ * read, so a blocking channel does not block while characters are available. On a 
+ * non-blocking channel {@link #read(CharBuffer)} returns 0 when no bytes are available. 
+ * The adapter is not safe for use by multiple threads.</p>
+ * 
+ * @see UTF7StyleCharset#newReadableChannel(ReadableByteChannel, int, boolean)
+ * @author Jaap Beetstra
+ */
+public final class UTF7ReadableChannel implements Readable, Channel {
+	private final ReadableByteChannel channel;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer buffer;
+	private final boolean reportMalformed;
+	private boolean endOfInput;
+	private boolean finished;
+
+	UTF7ReadableChannel(ReadableByteChannel channel, UTF7StyleCharset charset, int bufferSize,
+			boolean reportMalformed) {
+		if (bufferSize < 8)
+			throw new IllegalArgumentException("buffer size: " + bufferSize);
+		this.channel = channel;
+		this.reportMalformed = reportMalformed;
+		this.decoder = charset.newDecoder().onMalformedInput(
+				reportMalformed ? CodingErrorAction.REPORT : CodingErrorAction.REPLACE);
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		buffer.flip();
+	}
+
+	/**
+	 * <p>Reads and decodes characters.</p>
+	 * 
+	 * @param dst The buffer to put the characters in
+	 * @return The number of characters put, or -1 at the end of the channel
+	 * @throws java.nio.charset.MalformedInputException if the input is malformed, and 
+	 *   malformed input is reported
+	 * @throws IOException if the channel throws it
+	 */
+	public int read(CharBuffer dst) throws IOException {
+		int start = dst.position();
+		while (!finished && dst.hasRemaining()) {
+			CoderResult result = decoder.decode(buffer, dst, endOfInput);
+			if (result.isError())
+				result.throwException();
+			if (result.isOverflow() || dst.position() > start)
+				break;
+			if (endOfInput) {
+				if (!flush(dst))
+					break;
+				finished = true;
+			} else {
+				buffer.compact();
+				int count = channel.read(buffer);
+				buffer.flip();
+				if (count < 0)
+					endOfInput = true;
+				else if (count == 0)
+					break;
+			}
+		}
+		int count = dst.position() - start;
+		if (count == 0 && finished && dst.hasRemaining())
+			return -1;
+		return count;
+	}
+
+	/**
+	 * @return True if done, false if <code>dst</code> has no room
+	 */
+	private boolean flush(CharBuffer dst) throws IOException {
+		CoderResult result = decoder.flush(dst);
+		if (result.isOverflow())
+			return false;
+		if (result.isError()) {
+			// CharsetDecoder leaves errors found when flushing to the caller
+			if (reportMalformed)
+				result.throwException();
+			if (dst.remaining() < decoder.replacement().length())
+				return false;
+			dst.put(decoder.replacement());
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.Channel#close()
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+}
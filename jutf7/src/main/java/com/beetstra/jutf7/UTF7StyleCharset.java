@@ -0,0 +1,635 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Abstract base class for UTF-7 style encoding and decoding.</p>
+ * 
+ * <p>Besides the charset methods, encoded text can be hashed, compared to decoded text and 
+ * searched without decoding it; see {@link #hashDecoded(byte[])}, 
+ * {@link #equalsDecoded(byte[], CharSequence)} and 
+ * {@link #containsDecoded(byte[], CharSequence)}.</p>
+ * 
+ * <p>For servers holding many connections, text can also be decoded and encoded in parts 
+ * with the state kept in an <code>int</code> rather than in a decoder or encoder object; 
+ * see {@link #decodeStep(int, ByteBuffer, CharBuffer)} and 
+ * {@link #encodeStep(int, CharBuffer, ByteBuffer)}. Text spread over a chain of buffers is 
+ * decoded and encoded in place by {@link #decode(ByteBuffer[], CharBuffer)} and 
+ * {@link #encode(CharBuffer, ByteBuffer[])}.</p>
+ * 
+ * <p>Long texts assembled from fragments are encoded by a {@link UTF7Builder}, and text is 
+ * written to and read from byte channels by a {@link UTF7WritableChannel} and a 
+ * {@link UTF7ReadableChannel}. Whether bytes of unknown charset are likely in this one is 
+ * found by {@link #likelihood(byte[], int, int)}.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+abstract class UTF7StyleCharset extends Charset {
+	private static final List CONTAINED = Arrays.asList(new String[] { "US-ASCII", "ISO-8859-1",
+			"UTF-8", "UTF-16", "UTF-16LE", "UTF-16BE" });
+	final boolean strict;
+	final CharsetMetrics metrics;
+	final Base64Util base64;
+	final EncodedText text;
+
+	/**
+	 * <p>Besides the name and aliases, two additional parameters are required. First the 
+	 * base 64 alphabet used; in modified UTF-7 a slightly different alphabet is used. 
+	 * Additionally, it should be specified if encoders and decoders should be strict 
+	 * about the interpretation of malformed encoded sequences. This is used since 
+	 * modified UTF-7 specifically disallows some constructs which are allowed (or not 
+	 * specifically disallowed) in UTF-7 (RFC 2152).</p>
+	 * 
+	 * @param canonicalName The name as defined in java.nio.charset.Charset
+	 * @param aliases The aliases as defined in java.nio.charset.Charset
+	 * @param base64 The base 64 alphabet used, shared by all charsets using it
+	 * @param strict True if strict handling of sequences is requested
+	 */
+	protected UTF7StyleCharset(String canonicalName, String[] aliases, Base64Util base64,
+			boolean strict) {
+		super(canonicalName, aliases);
+		this.base64 = base64;
+		this.strict = strict;
+		this.metrics = CharsetMetrics.forCharset(canonicalName);
+		this.text = new EncodedText(this);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.charset.Charset#contains(java.nio.charset.Charset)
+	 */
+	public boolean contains(final Charset cs) {
+		return CONTAINED.contains(cs.name());
+	}
+
+	/**
+	 * <p>Returns the hash code of the decoded text, as {@link String#hashCode()} would 
+	 * compute it, without decoding the text. Malformed sequences count as U+FFFD, as when 
+	 * decoding with {@link java.nio.charset.CodingErrorAction#REPLACE}.</p>
+	 * 
+	 * @param encoded The encoded text
+	 * @return The hash code of the decoded text
+	 */
+	public int hashDecoded(byte[] encoded) {
+		return hashDecoded(encoded, 0, encoded.length);
+	}
+
+	/**
+	 * <p>Returns the hash code of the decoded text stored in part of an array.</p>
+	 * 
+	 * @param encoded The array holding the encoded text
+	 * @param offset The offset of the encoded text
+	 * @param length The length of the encoded text
+	 * @return The hash code of the decoded text
+	 * @see #hashDecoded(byte[])
+	 */
+	public int hashDecoded(byte[] encoded, int offset, int length) {
+		checkBounds(encoded, offset, length);
+		int end = offset + length;
+		int hash = 0;
+		long state = EncodedText.start(offset);
+		while (true) {
+			state = text.next(encoded, null, end, state);
+			if (!EncodedText.hasUnit(state))
+				return hash;
+			hash = 31 * hash + EncodedText.unit(state);
+		}
+	}
+
+	/**
+	 * <p>Tells if encoded text decodes to the given characters, without decoding it. Stops 
+	 * at the first difference. Malformed sequences count as U+FFFD.</p>
+	 * 
+	 * @param encoded The encoded text
+	 * @param decoded The decoded text to compare to
+	 * @return True if <code>encoded</code> decodes to <code>decoded</code>
+	 */
+	public boolean equalsDecoded(byte[] encoded, CharSequence decoded) {
+		return equalsDecoded(encoded, 0, encoded.length, decoded);
+	}
+
+	/**
+	 * <p>Tells if the encoded text stored in part of an array decodes to the given 
+	 * characters.</p>
+	 * 
+	 * @param encoded The array holding the encoded text
+	 * @param offset The offset of the encoded text
+	 * @param length The length of the encoded text
+	 * @param decoded The decoded text to compare to
+	 * @return True if the encoded text decodes to <code>decoded</code>
+	 * @see #equalsDecoded(byte[], CharSequence)
+	 */
+	public boolean equalsDecoded(byte[] encoded, int offset, int length, CharSequence decoded) {
+		checkBounds(encoded, offset, length);
+		int end = offset + length;
+		int count = decoded.length();
+		long state = EncodedText.start(offset);
+		for (int i = 0; i < count; i++) {
+			state = text.next(encoded, null, end, state);
+			if (!EncodedText.hasUnit(state) || EncodedText.unit(state) != decoded.charAt(i))
+				return false;
+		}
+		return !EncodedText.hasUnit(text.next(encoded, null, end, state));
+	}
+
+	/**
+	 * <p>Tells if encoded text decodes to text starting with the given characters, without 
+	 * decoding it. Malformed sequences count as U+FFFD.</p>
+	 * 
+	 * @param encoded The encoded text
+	 * @param prefix The decoded prefix to look for
+	 * @return True if the decoded text starts with <code>prefix</code>
+	 */
+	public boolean startsWithDecoded(byte[] encoded, CharSequence prefix) {
+		return startsWithDecoded(encoded, 0, encoded.length, prefix);
+	}
+
+	/**
+	 * <p>Tells if the encoded text stored in part of an array decodes to text starting 
+	 * with the given characters.</p>
+	 * 
+	 * @param encoded The array holding the encoded text
+	 * @param offset The offset of the encoded text
+	 * @param length The length of the encoded text
+	 * @param prefix The decoded prefix to look for
+	 * @return True if the decoded text starts with <code>prefix</code>
+	 * @see #startsWithDecoded(byte[], CharSequence)
+	 */
+	public boolean startsWithDecoded(byte[] encoded, int offset, int length,
+			CharSequence prefix) {
+		checkBounds(encoded, offset, length);
+		return matches(encoded, offset + length, EncodedText.start(offset), prefix, 0);
+	}
+
+	/**
+	 * <p>Tells if encoded text decodes to text containing the given characters, without 
+	 * decoding it. Returns as soon as a match is found. Malformed sequences count as 
+	 * U+FFFD.</p>
+	 * 
+	 * <p>The text is read once, in a single pass: the units are fed to a Knuth-Morris-Pratt 
+	 * matcher, whose state is the length of the longest prefix of <code>needle</code> 
+	 * ending at the last unit, so a failed match never reads text again. Bytes encoded 
+	 * directly decode to themselves, and runs of them are matched byte by byte without 
+	 * the decoder, also in text containing base 64 sequences.</p>
+	 * 
+	 * @param encoded The encoded text
+	 * @param needle The decoded text to look for
+	 * @return True if the decoded text contains <code>needle</code>
+	 */
+	public boolean containsDecoded(byte[] encoded, CharSequence needle) {
+		return containsDecoded(encoded, 0, encoded.length, needle);
+	}
+
+	/**
+	 * <p>Tells if the encoded text stored in part of an array decodes to text containing 
+	 * the given characters.</p>
+	 * 
+	 * @param encoded The array holding the encoded text
+	 * @param offset The offset of the encoded text
+	 * @param length The length of the encoded text
+	 * @param needle The decoded text to look for
+	 * @return True if the decoded text contains <code>needle</code>
+	 * @see #containsDecoded(byte[], CharSequence)
+	 */
+	public boolean containsDecoded(byte[] encoded, int offset, int length,
+			CharSequence needle) {
+		checkBounds(encoded, offset, length);
+		int count = needle.length();
+		if (count == 0)
+			return true;
+		int[] fallback = fallback(needle);
+		int end = offset + length;
+		byte shift = shift();
+		int matched = 0;
+		long state = EncodedText.start(offset);
+		while (true) {
+			if (EncodedText.isDirect(state)) {
+				int position = EncodedText.position(state);
+				int i = position;
+				while (i < end && encoded[i] != shift) {
+					matched = match(needle, fallback, matched, (char) encoded[i++]);
+					if (matched == count)
+						return true;
+				}
+				if (i > position)
+					state = EncodedText.start(i);
+			}
+			state = text.next(encoded, null, end, state);
+			if (!EncodedText.hasUnit(state))
+				return false;
+			matched = match(needle, fallback, matched, EncodedText.unit(state));
+			if (matched == count)
+				return true;
+		}
+	}
+
+	/**
+	 * @param needle The text searched for
+	 * @return For each prefix of <code>needle</code>, the length of its longest proper 
+	 *   prefix which is also a suffix of it; null if these are all 0, because the first 
+	 *   character does not occur again, so that most searches do not allocate
+	 */
+	private static int[] fallback(CharSequence needle) {
+		char first = needle.charAt(0);
+		int recurs = 1;
+		while (recurs < needle.length() && needle.charAt(recurs) != first)
+			recurs++;
+		if (recurs == needle.length())
+			return null;
+		int[] fallback = new int[needle.length()];
+		int length = 0;
+		for (int i = 1; i < fallback.length; i++) {
+			char ch = needle.charAt(i);
+			while (length > 0 && needle.charAt(length) != ch)
+				length = fallback[length - 1];
+			if (needle.charAt(length) == ch)
+				length++;
+			fallback[i] = length;
+		}
+		return fallback;
+	}
+
+	/**
+	 * @param matched The number of characters of <code>needle</code> matched before 
+	 *   <code>unit</code>
+	 * @return The number of characters of <code>needle</code> matched after 
+	 *   <code>unit</code>
+	 */
+	private static int match(CharSequence needle, int[] fallback, int matched, char unit) {
+		while (matched > 0 && needle.charAt(matched) != unit)
+			matched = fallback == null ? 0 : fallback[matched - 1];
+		if (needle.charAt(matched) == unit)
+			matched++;
+		return matched;
+	}
+
+
+	/**
+	 * @return True if the units read from <code>state</code> on match the characters of 
+	 *   <code>chars</code> from <code>index</code> on
+	 */
+	private boolean matches(byte[] encoded, int end, long state, CharSequence chars,
+			int index) {
+		int count = chars.length();
+		for (int i = index; i < count; i++) {
+			state = text.next(encoded, null, end, state);
+			if (!EncodedText.hasUnit(state) || EncodedText.unit(state) != chars.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Decodes the next part of a text, with the decoder state passed in and returned as 
+	 * an <code>int</code>. The state of a new text is 0; otherwise the value is opaque. 
+	 * Decoding stops when <code>in</code> is exhausted or <code>out</code> is full. 
+	 * Malformed sequences are replaced by U+FFFD, as with 
+	 * {@link java.nio.charset.CodingErrorAction#REPLACE}. Once all input has been decoded, 
+	 * {@link #decodeEnd(int, CharBuffer)} must be called.</p>
+	 * 
+	 * @param state The state returned by the previous call, or 0
+	 * @param in The input buffer
+	 * @param out The output buffer
+	 * @return The new state
+	 */
+	public int decodeStep(int state, ByteBuffer in, CharBuffer out) {
+		byte[] array = null;
+		int offset = 0;
+		if (in.hasArray()) {
+			array = in.array();
+			offset = in.arrayOffset();
+		}
+		int end = in.limit() + offset;
+		long next = EncodedText.resume(state, in.position() + offset);
+		while (out.hasRemaining()) {
+			next = text.next(array, in, end, next, false);
+			if (!EncodedText.hasUnit(next))
+				break;
+			out.put(EncodedText.unit(next));
+		}
+		in.position(EncodedText.position(next) - offset);
+		return EncodedText.suspend(next);
+	}
+
+	/**
+	 * <p>Ends decoding a text, writing U+FFFD if it ends in an incomplete sequence.</p>
+	 * 
+	 * @param state The state returned by {@link #decodeStep(int, ByteBuffer, CharBuffer)}
+	 * @param out The output buffer
+	 * @return 0 when done, or a state to pass again once <code>out</code> has room
+	 */
+	public int decodeEnd(int state, CharBuffer out) {
+		long current = EncodedText.resume(state, 0);
+		while (true) {
+			long next = text.next(null, null, 0, current, true);
+			if (!EncodedText.hasUnit(next))
+				return 0;
+			if (!out.hasRemaining())
+				return EncodedText.suspend(current);
+			out.put(EncodedText.unit(next));
+			current = next;
+		}
+	}
+
+	/**
+	 * <p>Encodes the next part of a text, with the encoder state passed in and returned as 
+	 * an <code>int</code>. The state of a new text is 0; otherwise the value is opaque. 
+	 * Encoding stops when <code>in</code> is exhausted or <code>out</code> has less than 
+	 * four bytes left. Once all input has been encoded, 
+	 * {@link #encodeEnd(int, ByteBuffer)} must be called.</p>
+	 * 
+	 * @param state The state returned by the previous call, or 0
+	 * @param in The input buffer
+	 * @param out The output buffer
+	 * @return The new state
+	 */
+	public int encodeStep(int state, CharBuffer in, ByteBuffer out) {
+		byte shift = shift();
+		byte unshift = unshift();
+		long directLow = directLow();
+		long directHigh = directHigh();
+		while (in.hasRemaining() && out.remaining() >= 4)
+			state = UTF7StyleCharsetEncoder.encode(state, in.get(), out, base64, shift, unshift,
+					strict, directLow, directHigh);
+		return state;
+	}
+
+	/**
+	 * <p>Ends encoding a text, leaving base 64 if necessary.</p>
+	 * 
+	 * @param state The state returned by {@link #encodeStep(int, CharBuffer, ByteBuffer)}
+	 * @param out The output buffer
+	 * @return 0 when done, or the state to pass again once <code>out</code> has room
+	 */
+	public int encodeEnd(int state, ByteBuffer out) {
+		return UTF7StyleCharsetEncoder.end(state, out, base64, unshift());
+	}
+
+	/**
+	 * <p>Creates a builder encoding text appended to it in fragments.</p>
+	 * 
+	 * @return A new builder
+	 */
+	public UTF7Builder newBuilder() {
+		return new UTF7Builder(this);
+	}
+
+	/**
+	 * <p>Creates an adapter writing characters to a byte channel.</p>
+	 * 
+	 * @param channel The channel to write the encoded text to
+	 * @param bufferSize The capacity of each of the two direct buffers, at least 8
+	 * @return A new adapter
+	 * @throws IllegalArgumentException if the buffer size is too small
+	 */
+	public UTF7WritableChannel newWritableChannel(WritableByteChannel channel, int bufferSize) {
+		return new UTF7WritableChannel(channel, this, bufferSize);
+	}
+
+	/**
+	 * <p>Creates an adapter reading characters from a byte channel.</p>
+	 * 
+	 * @param channel The channel to read the encoded text from
+	 * @param bufferSize The capacity of the direct buffer, at least 8
+	 * @param reportMalformed True to throw a <code>MalformedInputException</code> at 
+	 *   malformed input, false to replace it by U+FFFD
+	 * @return A new adapter
+	 * @throws IllegalArgumentException if the buffer size is too small
+	 */
+	public UTF7ReadableChannel newReadableChannel(ReadableByteChannel channel, int bufferSize,
+			boolean reportMalformed) {
+		return new UTF7ReadableChannel(channel, this, bufferSize, reportMalformed);
+	}
+
+	/**
+	 * <p>Tells how likely it is that bytes are text in this charset.</p>
+	 * 
+	 * @param bytes The bytes
+	 * @return The likelihood
+	 * @see #likelihood(byte[], int, int)
+	 */
+	public UTF7Likelihood likelihood(byte[] bytes) {
+		return likelihood(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * <p>Tells how likely it is that part of an array is text in this charset, such as a 
+	 * message body with a missing or wrong charset label. The bytes are scanned once, 
+	 * checking the base 64 sequences are well-formed and classifying the units they decode 
+	 * to, without writing the decoded text anywhere. The scan stops at the first byte of 
+	 * 0x80 or above, or the first malformed sequence.</p>
+	 * 
+	 * @param bytes The array holding the bytes
+	 * @param offset The offset of the bytes
+	 * @param length The number of bytes
+	 * @return The likelihood
+	 */
+	public UTF7Likelihood likelihood(byte[] bytes, int offset, int length) {
+		checkBounds(bytes, offset, length);
+		long directLow = directLow();
+		long directHigh = directHigh();
+		boolean highSurrogate = false;
+		int units = 0;
+		int nonAsciiUnits = 0;
+		int suspiciousUnits = 0;
+		int end = offset + length;
+		long state = EncodedText.start(offset);
+		while (true) {
+			state = text.next(bytes, null, end, state);
+			if (!EncodedText.hasUnit(state))
+				break;
+			if (EncodedText.isMalformed(state))
+				return UTF7Likelihood.IMPOSSIBLE;
+			char unit = EncodedText.unit(state);
+			if (!EncodedText.isBase64(state)) {
+				// a byte of 0x80 or above reads as a unit of 0xFF80 or above
+				if (unit >= 0x80)
+					return UTF7Likelihood.IMPOSSIBLE;
+				if (highSurrogate)
+					suspiciousUnits++;
+				highSurrogate = false;
+				continue;
+			}
+			units++;
+			if (unit >= 0x80)
+				nonAsciiUnits++;
+			else if (((unit < 64 ? directLow : directHigh) & (1L << unit)) != 0)
+				suspiciousUnits++;
+			if (highSurrogate != Character.isLowSurrogate(unit))
+				suspiciousUnits++;
+			highSurrogate = Character.isHighSurrogate(unit);
+		}
+		if (highSurrogate)
+			suspiciousUnits++;
+		return new UTF7Likelihood(true, units, nonAsciiUnits, suspiciousUnits);
+	}
+
+	/**
+	 * <p>Decodes a text spread over a chain of buffers, such as a message received in 
+	 * pooled buffers, without copying it into a single buffer. The remaining bytes of the 
+	 * buffers are decoded in order, carrying the decoder state from one buffer to the 
+	 * next. Malformed sequences are replaced by U+FFFD.</p>
+	 * 
+	 * <p>A text never decodes to more characters than it has bytes plus one, so an output 
+	 * buffer with that many characters remaining is large enough.</p>
+	 * 
+	 * @param srcs The buffers holding the encoded text
+	 * @param dst The output buffer
+	 * @return The number of characters written
+	 * @throws BufferOverflowException if <code>dst</code> is full before the text is 
+	 *   decoded; the buffers are then positioned where decoding stopped
+	 */
+	public int decode(ByteBuffer[] srcs, CharBuffer dst) {
+		int start = dst.position();
+		int state = 0;
+		for (int i = 0; i < srcs.length; i++) {
+			state = decodeStep(state, srcs[i], dst);
+			if (srcs[i].hasRemaining())
+				throw new BufferOverflowException();
+		}
+		if (decodeEnd(state, dst) != 0)
+			throw new BufferOverflowException();
+		return dst.position() - start;
+	}
+
+	/**
+	 * <p>Encodes a text into a chain of buffers, filling each buffer before moving on to 
+	 * the next. The bytes of a character may be split over two buffers.</p>
+	 * 
+	 * @param src The characters to encode
+	 * @param dsts The output buffers
+	 * @return The number of bytes written
+	 * @throws BufferOverflowException if the buffers are full before the text is 
+	 *   encoded; <code>src</code> is then positioned where encoding stopped
+	 */
+	public int encode(CharBuffer src, ByteBuffer[] dsts) {
+		// a character needs up to four bytes, plus two to end; these go through carry when 
+		// the current buffer has less room than that
+		ByteBuffer carry = null;
+		int written = 0;
+		int state = 0;
+		int i = 0;
+		while (src.hasRemaining()) {
+			if (i == dsts.length)
+				throw new BufferOverflowException();
+			ByteBuffer dst = dsts[i];
+			if (dst.remaining() >= 4) {
+				int before = dst.position();
+				state = encodeStep(state, src, dst);
+				written += dst.position() - before;
+			} else if (dst.hasRemaining()) {
+				if (carry == null)
+					carry = ByteBuffer.allocate(4);
+				carry.clear();
+				int limit = src.limit();
+				src.limit(src.position() + 1);
+				state = encodeStep(state, src, carry);
+				src.limit(limit);
+				carry.flip();
+				written += carry.remaining();
+				i = put(carry, dsts, i);
+			} else
+				i++;
+		}
+		if (i < dsts.length && dsts[i].remaining() >= 2) {
+			ByteBuffer dst = dsts[i];
+			int before = dst.position();
+			encodeEnd(state, dst);
+			return written + dst.position() - before;
+		}
+		if (carry == null)
+			carry = ByteBuffer.allocate(4);
+		carry.clear();
+		encodeEnd(state, carry);
+		carry.flip();
+		written += carry.remaining();
+		put(carry, dsts, i);
+		return written;
+	}
+
+	/**
+	 * Puts the bytes of <code>carry</code> into the buffers from <code>index</code> on.
+	 * 
+	 * @return The index of the buffer put into last
+	 */
+	private static int put(ByteBuffer carry, ByteBuffer[] dsts, int index) {
+		while (carry.hasRemaining()) {
+			if (index == dsts.length)
+				throw new BufferOverflowException();
+			ByteBuffer dst = dsts[index];
+			while (carry.hasRemaining() && dst.hasRemaining())
+				dst.put(carry.get());
+			if (carry.hasRemaining())
+				index++;
+		}
+		return index;
+	}
+
+	static void checkBounds(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > bytes.length - length)
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+					+ ", array length " + bytes.length);
+	}
+
+	/**
+	 * Tells if a character can be encoded using simple (US-ASCII) encoding or 
+	 * requires base 64 encoding.
+	 * 
+	 * @param ch The character
+	 * @return True if the character can be encoded directly, false otherwise
+	 */
+	abstract boolean canEncodeDirectly(char ch);
+
+	/**
+	 * Returns character used to switch to base 64 encoding.
+	 * @return The shift character
+	 */
+	abstract byte shift();
+
+	/**
+	 * Returns character used to switch from base 64 encoding to simple encoding.
+	 * @return The unshift character
+	 */
+	abstract byte unshift();
+
+	/**
+	 * Returns the directly encoded characters 0-63, as used by the encoder.
+	 * @return Bit <code>ch</code> set if character <code>ch</code> is encoded directly
+	 */
+	abstract long directLow();
+
+	/**
+	 * Returns the directly encoded characters 64-127, as used by the encoder.
+	 * @return Bit <code>ch - 64</code> set if character <code>ch</code> is encoded directly
+	 */
+	abstract long directHigh();
+}
@@ -29,40 +29,92 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
 
 /**
- * <p>The CharsetDecoder used to decode both variants of the UTF-7 charset and the 
- * modified-UTF-7 charset.</p>
+ * <p>Base class of the CharsetDecoders used to decode both variants of the UTF-7 charset 
+ * and the modified-UTF-7 charset.</p>
+ * 
+ * <p>As in {@link UTF7StyleCharsetEncoder}, the decoding is implemented once, taking the 
+ * properties of the charset as arguments, and called with constants by a final subclass 
+ * per charset.</p>
  * 
  * @author Jaap Beetstra
  */
-class UTF7StyleCharsetDecoder extends CharsetDecoder {
+abstract class UTF7StyleCharsetDecoder extends CharsetDecoder {
 	private final Base64Util base64;
-	private final byte shift;
-	private final byte unshift;
 	private final boolean strict;
+	private final CharsetMetrics metrics;
+	private final CodecBlocks blocks = new CodecBlocks();
 	private boolean base64mode;
 	private int bitsRead;
 	private int tempChar;
 	private boolean justShifted;
 	private boolean justUnshifted;
+	private Object event;
+	private long eventInput;
+	private long eventOutput;
+	private int eventMalformed;
 
 	UTF7StyleCharsetDecoder(UTF7StyleCharset cs, Base64Util base64, boolean strict) {
 		super(cs, 0.6f, 1.0f);
 		this.base64 = base64;
 		this.strict = strict;
-		this.shift = cs.shift();
-		this.unshift = cs.unshift();
+		this.metrics = cs.metrics;
+		if (CharsetMetrics.enabled)
+			metrics.decoderCreated();
 	}
 
 	/* (non-Javadoc)
 	 * @see java.nio.charset.CharsetDecoder#decodeLoop(java.nio.ByteBuffer, java.nio.CharBuffer)
 	 */
 	protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+		if (!CharsetMetrics.enabled && event == null)
+			return decodeBytes(in, out);
+		int inStart = in.position();
+		int outStart = out.position();
+		CoderResult result = decodeBytes(in, out);
+		int bytesRead = in.position() - inStart;
+		int charsWritten = out.position() - outStart;
+		if (CharsetMetrics.enabled)
+			metrics.decoded(bytesRead, charsWritten, result.isOverflow());
+		if (event != null) {
+			eventInput += bytesRead;
+			eventOutput += charsWritten;
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Decodes bytes; implemented by calling 
+	 * {@link #decodeBytes(ByteBuffer, CharBuffer, byte, byte, boolean)} with the constants 
+	 * of the charset.</p>
+	 * 
+	 * @param in The input byte buffer
+	 * @param out The output character buffer
+	 * @return A coder-result object describing the reason for termination
+	 */
+	abstract CoderResult decodeBytes(ByteBuffer in, CharBuffer out);
+
+	/**
+	 * <p>Decodes bytes for the charset described by the arguments.</p>
+	 * 
+	 * @param in The input byte buffer
+	 * @param out The output character buffer
+	 * @param shift The character used to switch to base 64 encoding
+	 * @param unshift The character used to switch from base 64 encoding
+	 * @param strictMode True if malformed sequences are to be reported
+	 * @return A coder-result object describing the reason for termination
+	 */
+	final CoderResult decodeBytes(ByteBuffer in, CharBuffer out, byte shift, byte unshift,
+			boolean strictMode) {
 		while (in.hasRemaining()) {
+			if (!base64mode && CodecSupport.decodeDirect(in, out, shift, blocks) > 0) {
+				justUnshifted = false;
+				continue;
+			}
 			byte b = in.get();
 			if (base64mode) {
 				if (b == unshift) {
 					if (base64bitsWaiting())
-						return malformed(in);
+						return malformed(in, CharsetMetrics.MALFORMED_INCOMPLETE_BASE64);
 					if (justShifted) {
 						if (!out.hasRemaining())
 							return overflow(in);
@@ -73,7 +125,7 @@ class UTF7StyleCharsetDecoder extends CharsetDecoder {
 				} else {
 					if (!out.hasRemaining())
 						return overflow(in);
-					CoderResult result = handleBase64(in, out, b);
+					CoderResult result = handleBase64(in, out, b, strictMode);
 					if (result != null)
 						return result;
 				}
@@ -81,8 +133,8 @@ class UTF7StyleCharsetDecoder extends CharsetDecoder {
 			} else {
 				if (b == shift) {
 					base64mode = true;
-					if (justUnshifted && strict)
-						return malformed(in);
+					if (justUnshifted && strictMode)
+						return malformed(in, CharsetMetrics.MALFORMED_ADJACENT_BASE64);
 					justShifted = true;
 					continue;
 				}
@@ -107,10 +159,12 @@ class UTF7StyleCharsetDecoder extends CharsetDecoder {
 	 * @param in The input buffer
 	 * @param out The output buffer
 	 * @param lastRead Last byte read from the input buffer
+	 * @param strictMode True if malformed sequences are to be reported
 	 * @return CoderResult.malformed if a non-base 64 character was encountered in strict 
 	 *   mode, null otherwise
 	 */
-	private CoderResult handleBase64(ByteBuffer in, CharBuffer out, byte lastRead) {
+	private CoderResult handleBase64(ByteBuffer in, CharBuffer out, byte lastRead,
+			boolean strictMode) {
 		CoderResult result = null;
 		int sextet = base64.getSextet(lastRead);
 		if (sextet >= 0) {
@@ -124,11 +178,11 @@ class UTF7StyleCharsetDecoder extends CharsetDecoder {
 				tempChar = (sextet << (16 - bitsRead)) & 0xFFFF;
 			}
 		} else {
-			if (strict)
-				return malformed(in);
+			if (strictMode)
+				return malformed(in, CharsetMetrics.MALFORMED_INVALID_BASE64);
 			out.put((char) lastRead);
 			if (base64bitsWaiting())
-				result = malformed(in);
+				result = malformed(in, CharsetMetrics.MALFORMED_INCOMPLETE_BASE64);
 			setUnshifted();
 		}
 		return result;
@@ -138,17 +192,36 @@ class UTF7StyleCharsetDecoder extends CharsetDecoder {
 	 * @see java.nio.charset.CharsetDecoder#implFlush(java.nio.CharBuffer)
 	 */
 	protected CoderResult implFlush(CharBuffer out) {
-		if ((base64mode && strict) || base64bitsWaiting())
-			return CoderResult.malformedForLength(1);
-		return CoderResult.UNDERFLOW;
+		CoderResult result = CoderResult.UNDERFLOW;
+		if ((base64mode && strict) || base64bitsWaiting()) {
+			if (CharsetMetrics.enabled)
+				metrics.malformed(base64bitsWaiting() ? CharsetMetrics.MALFORMED_INCOMPLETE_BASE64
+						: CharsetMetrics.MALFORMED_UNTERMINATED_BASE64);
+			eventMalformed++;
+			result = CoderResult.malformedForLength(1);
+		}
+		if (event != null) {
+			CodecEvents.INSTANCE.endDecode(event, charset().name(), eventInput, eventOutput,
+					eventMalformed);
+			event = null;
+		}
+		return result;
 	}
 
-	/* (non-Javadoc)
-	 * @see java.nio.charset.CharsetDecoder#implReset()
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Since {@link java.nio.charset.CharsetDecoder#decode(ByteBuffer)} starts with a reset 
+	 * and ends with a flush, this is where an operation reported to {@link CodecEvents} 
+	 * starts.</p>
 	 */
 	protected void implReset() {
 		setUnshifted();
 		justUnshifted = false;
+		event = CodecEvents.INSTANCE.beginDecode();
+		eventInput = 0;
+		eventOutput = 0;
+		eventMalformed = 0;
 	}
 
 	/**
@@ -156,9 +229,13 @@ class UTF7StyleCharsetDecoder extends CharsetDecoder {
 	 * a result indicating to skip the last byte.</p>
 	 * 
 	 * @param in The input buffer
+	 * @param kind The kind of malformed sequence, as counted by {@link CharsetMetrics}
 	 * @return CoderResult.malformedForLength(1);
 	 */
-	private CoderResult malformed(ByteBuffer in) {
+	private CoderResult malformed(ByteBuffer in, int kind) {
+		if (CharsetMetrics.enabled)
+			metrics.malformed(kind);
+		eventMalformed++;
 		in.position(in.position() - 1);
 		return CoderResult.malformedForLength(1);
 	}
@@ -0,0 +1,411 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * <p>Base class of the CharsetEncoders used to encode both variants of the UTF-7 charset 
+ * and the modified-UTF-7 charset.</p>
+ * 
+ * <p>The encoding itself is implemented once, in 
+ * {@link #encodeChars(CharBuffer, ByteBuffer, byte, byte, boolean, long, long)}, which 
+ * takes the properties of the charset as arguments. Each charset has its own final 
+ * subclass calling it with compile-time constants. Once the JIT inlines the call, every 
+ * subclass has a copy of the loop with those constants folded in, even when all charsets 
+ * are in use.</p>
+ * 
+ * <p>An encoder created with a lookahead does not leave base 64 at every directly 
+ * encodable character. Leaving costs the bits waiting to be written, possibly an unshift 
+ * character, and a shift character when base 64 is needed again; for a single digit 
+ * between two non-ASCII characters encoding it in base 64 is shorter. Conversely the 
+ * shift character, which is always encoded in base 64 in base 64 mode otherwise, may be 
+ * shorter written directly. At such a character the encoder finds the shortest encoding 
+ * of the next characters, up to the lookahead, and follows its first step; see 
+ * {@link #staysInBase64}.</p>
+ * 
+ * <p><strong>Please note this class does not behave strictly according to the specification in 
+ * Sun Java VMs before 1.6.</strong> This is done to get around a bug in the implementation 
+ * of {@link java.nio.charset.CharsetEncoder#encode(CharBuffer)}. Unfortunately, that method 
+ * cannot be overridden.</p>
+ *  
+ * @see <a href="http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6221056">JDK bug 6221056</a>
+ * 
+ * @author Jaap Beetstra
+ */
+abstract class UTF7StyleCharsetEncoder extends CharsetEncoder {
+	private static final float AVG_BYTES_PER_CHAR = 1.5f;
+	private static final float MAX_BYTES_PER_CHAR = 5.0f;
+	private static final long UNREACHABLE = Long.MAX_VALUE / 4;
+	/** Set in the state while in base 64 mode; the state is 0 otherwise */
+	static final int BASE64_MODE = 1 << 16;
+	private static final int BITS_SHIFT = 8;
+	private final UTF7StyleCharset cs;
+	private final Base64Util base64;
+	private final byte unshift;
+	private final int lookahead;
+	private final CodecBlocks blocks = new CodecBlocks();
+	private int state;
+	private Object event;
+	private long eventInput;
+	private long eventOutput;
+
+	UTF7StyleCharsetEncoder(UTF7StyleCharset cs, Base64Util base64) {
+		this(cs, base64, 0);
+	}
+
+	/**
+	 * @param cs The charset
+	 * @param base64 The base 64 alphabet of the charset
+	 * @param lookahead The number of characters to look ahead when deciding whether to leave 
+	 *   base 64, or 0 to always leave it at a directly encodable character
+	 */
+	UTF7StyleCharsetEncoder(UTF7StyleCharset cs, Base64Util base64, int lookahead) {
+		super(cs, AVG_BYTES_PER_CHAR, MAX_BYTES_PER_CHAR);
+		this.cs = cs;
+		this.base64 = base64;
+		this.unshift = cs.unshift();
+		this.lookahead = lookahead;
+		if (CharsetMetrics.enabled)
+			cs.metrics.encoderCreated();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Since {@link java.nio.charset.CharsetEncoder#encode(CharBuffer)} starts with a reset 
+	 * and ends with a flush, this is where an operation reported to {@link CodecEvents} 
+	 * starts.</p>
+	 */
+	protected void implReset() {
+		state = 0;
+		event = CodecEvents.INSTANCE.beginEncode();
+		eventInput = 0;
+		eventOutput = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Note that this method might return <code>CoderResult.OVERFLOW</code> (as is 
+	 * required by the specification) if insufficient space is available in the output 
+	 * buffer. However, calling it again on JDKs before Java 6 triggers a bug in 
+	 * {@link java.nio.charset.CharsetEncoder#flush(ByteBuffer)} causing it to throw an 
+	 * IllegalStateException (the buggy method is <code>final</code>, thus cannot be 
+	 * overridden).</p>
+	 * 
+	 * @see <a href="http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6227608">JDK bug 6227608</a>
+	 * @param out The output byte buffer
+	 * @return A coder-result object describing the reason for termination
+	 */
+	protected CoderResult implFlush(ByteBuffer out) {
+		int outStart = out.position();
+		state = end(state, out, base64, unshift);
+		if (state != 0)
+			return CoderResult.OVERFLOW;
+		if (event != null) {
+			eventOutput += out.position() - outStart;
+			CodecEvents.INSTANCE.endEncode(event, cs.name(), eventInput, eventOutput, 0);
+			event = null;
+		}
+		return CoderResult.UNDERFLOW;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Note that this method might return <code>CoderResult.OVERFLOW</code>, even 
+	 * though there is sufficient space available in the output buffer. This is done 
+	 * to force the broken implementation of 
+	 * {@link java.nio.charset.CharsetEncoder#encode(CharBuffer)} to call flush 
+	 * (the buggy method is <code>final</code>, thus cannot be overridden).</p>
+	 * <p>However, String.getBytes() fails if CoderResult.OVERFLOW is returned, since
+	 * this assumes it always allocates sufficient bytes (maxBytesPerChar * nr_of_chars).
+	 * Thus, as an extra check, the size of the input buffer is compared against the size
+	 * of the output buffer.
+	 * {@link CodecSupport#FLUSH_HACK} indicates if a broken java version is used; 
+	 * on Java 11 and later it is a constant <code>false</code>.</p>
+	 * <p>It is not possible to directly write the last few bytes, since more bytes 
+	 * might be waiting to be encoded then those available in the input buffer.</p> 
+	 * 
+	 * @see <a href="http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6221056">JDK bug 6221056</a>
+	 * @param in The input character buffer
+	 * @param out The output byte buffer
+	 * @return A coder-result object describing the reason for termination
+	 */
+	protected CoderResult encodeLoop(CharBuffer in, ByteBuffer out) {
+		if (!CharsetMetrics.enabled && event == null)
+			return encodeChars(in, out);
+		int inStart = in.position();
+		int outStart = out.position();
+		CoderResult result = encodeChars(in, out);
+		int charsRead = in.position() - inStart;
+		int bytesWritten = out.position() - outStart;
+		if (CharsetMetrics.enabled)
+			cs.metrics.encoded(charsRead, bytesWritten, result.isOverflow());
+		if (event != null) {
+			eventInput += charsRead;
+			eventOutput += bytesWritten;
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Encodes characters; implemented by calling 
+	 * {@link #encodeChars(CharBuffer, ByteBuffer, byte, byte, boolean, long, long)} with 
+	 * the constants of the charset.</p>
+	 * 
+	 * @param in The input character buffer
+	 * @param out The output byte buffer
+	 * @return A coder-result object describing the reason for termination
+	 */
+	abstract CoderResult encodeChars(CharBuffer in, ByteBuffer out);
+
+	/**
+	 * <p>Encodes characters for the charset described by the arguments.</p>
+	 * 
+	 * @param in The input character buffer
+	 * @param out The output byte buffer
+	 * @param shift The character used to switch to base 64 encoding
+	 * @param unshift The character used to switch from base 64 encoding
+	 * @param strict True if the unshift character is always written
+	 * @param directLow Bit <code>ch</code> is set if the character <code>ch</code> 
+	 *   (0-63) is encoded directly
+	 * @param directHigh Bit <code>ch - 64</code> is set if the character <code>ch</code> 
+	 *   (64-127) is encoded directly
+	 * @return A coder-result object describing the reason for termination
+	 */
+	final CoderResult encodeChars(CharBuffer in, ByteBuffer out, byte shift, byte unshift,
+			boolean strict, long directLow, long directHigh) {
+		int state = this.state;
+		CoderResult result = CoderResult.UNDERFLOW;
+		while (in.hasRemaining()) {
+			if (state == 0
+					&& CodecSupport.encodeDirect(in, out, directLow, directHigh, blocks) > 0)
+				continue;
+			if (out.remaining() < 4) {
+				result = CoderResult.OVERFLOW;
+				break;
+			}
+			char ch = in.get();
+			if (state != 0 && lookahead > 0 && (ch == shift
+					|| ch < 128 && ((ch < 64 ? directLow : directHigh) & (1L << ch)) != 0)) {
+				if (staysInBase64(in, ch, state, shift, unshift, strict, directLow, directHigh)) {
+					state = encodeBase64(state, ch, out, base64, shift);
+					continue;
+				}
+				state = unshift(state, ch, out, base64, unshift, strict);
+			}
+			state = encode(state, ch, out, base64, shift, unshift, strict, directLow,
+					directHigh);
+		}
+		/* <HACK type="ugly">
+		 These lines are required to trick JDK 1.5 and earlier into flushing when using 
+		 Charset.encode(String), Charset.encode(CharBuffer) or CharsetEncoder.encode(CharBuffer)
+		 Without them, the last few bytes may be missing.
+		 */
+		if (state != 0 && CodecSupport.FLUSH_HACK && result.isUnderflow()
+				&& out.limit() != MAX_BYTES_PER_CHAR * in.limit())
+			result = CoderResult.OVERFLOW;
+		/* </HACK> */
+		this.state = state;
+		return result;
+	}
+
+	/**
+	 * <p>Encodes a character as an encoder without lookahead does, with the encoder state 
+	 * passed in and returned as an <code>int</code>: 0 in direct mode, or 
+	 * {@link #BASE64_MODE} together with the bits waiting to be written. The encoders, 
+	 * the step functions of {@link UTF7StyleCharset} and {@link UTF7Converter} all encode 
+	 * through this method and the ones it calls.</p>
+	 * 
+	 * @param state The state
+	 * @param ch The character
+	 * @param out The output buffer, having room for four bytes
+	 * @param base64 The base 64 alphabet
+	 * @param shift The character used to switch to base 64 encoding
+	 * @param unshift The character used to switch from base 64 encoding
+	 * @param strict True if the unshift character is always written
+	 * @param directLow Bit <code>ch</code> is set if the character <code>ch</code> 
+	 *   (0-63) is encoded directly
+	 * @param directHigh Bit <code>ch - 64</code> is set if the character <code>ch</code> 
+	 *   (64-127) is encoded directly
+	 * @return The new state
+	 */
+	static int encode(int state, char ch, ByteBuffer out, Base64Util base64, byte shift,
+			byte unshift, boolean strict, long directLow, long directHigh) {
+		if (ch < 128 && ((ch < 64 ? directLow : directHigh) & (1L << ch)) != 0) {
+			state = unshift(state, ch, out, base64, unshift, strict);
+			out.put((byte) ch);
+			return state;
+		}
+		if (state == 0 && ch == shift) {
+			out.put(shift);
+			out.put(unshift);
+			return 0;
+		}
+		return encodeBase64(state, ch, out, base64, shift);
+	}
+
+	/**
+	 * <p>Writes the bytes leaving base 64 mode at the end of the text.</p>
+	 * 
+	 * @param state The state
+	 * @param out The output buffer
+	 * @param base64 The base 64 alphabet
+	 * @param unshift The character used to switch from base 64 encoding
+	 * @return 0 when done, or <code>state</code> if <code>out</code> has less than two 
+	 *   bytes left
+	 */
+	static int end(int state, ByteBuffer out, Base64Util base64, byte unshift) {
+		if (state == 0)
+			return 0;
+		if (out.remaining() < 2)
+			return state;
+		if (bitsToOutput(state) != 0)
+			out.put(base64.getChar(state & 0x3F));
+		out.put(unshift);
+		return 0;
+	}
+
+	/**
+	 * @param bitsToOutput The number of bits waiting to be written, 0, 2 or 4
+	 * @param sextet The sextet holding these bits in its highest bits
+	 * @return The state in base 64 mode with these bits waiting
+	 */
+	static int base64State(int bitsToOutput, int sextet) {
+		return BASE64_MODE | bitsToOutput << BITS_SHIFT | sextet;
+	}
+
+	private static int bitsToOutput(int state) {
+		return state >> BITS_SHIFT & 0xF;
+	}
+
+	/**
+	 * <p>Decides whether to encode a directly encodable character or the shift character in 
+	 * base 64 mode, by finding the shortest encoding of it and the characters following it 
+	 * in the input buffer, up to the lookahead. Each path through the encodings is tracked 
+	 * by its length in bytes, shifted left by one, with the lowest bit set if it starts by 
+	 * staying in base 64. The shortest path ending in each state is kept: direct mode, or 
+	 * base 64 mode with 0, 2 or 4 bits waiting. On a tie the path leaving base 64 is 
+	 * preferred, since it has the lower value.</p>
+	 * 
+	 * @param in The input, positioned after <code>first</code>
+	 * @param first The directly encodable or shift character read
+	 * @return True if the shortest encoding starts by encoding <code>first</code> in 
+	 *   base 64
+	 */
+	private boolean staysInBase64(CharBuffer in, char first, int state, byte shift,
+			byte unshift, boolean strict, long directLow, long directHigh) {
+		int bitsToOutput = bitsToOutput(state);
+		int firstWritten = first == shift ? 2 : 1;
+		long direct = (leaveCost(bitsToOutput, first, unshift, strict) + firstWritten) << 1;
+		long bits0 = UNREACHABLE;
+		long bits2 = UNREACHABLE;
+		long bits4 = UNREACHABLE;
+		if (bitsToOutput == 0)
+			bits4 = (2 << 1) | 1;
+		else if (bitsToOutput == 2)
+			bits0 = (3 << 1) | 1;
+		else
+			bits2 = (3 << 1) | 1;
+		int end = in.position() + Math.min(lookahead, in.remaining());
+		for (int i = in.position(); i < end; i++) {
+			char ch = in.get(i);
+			long nextDirect = UNREACHABLE;
+			boolean isDirect = ch < 128 && ((ch < 64 ? directLow : directHigh) & (1L << ch)) != 0;
+			if (isDirect || ch == shift) {
+				int written = isDirect ? 1 : 2;
+				int leave = leaveCost(0, ch, unshift, strict) + written;
+				nextDirect = Math.min(Math.min(direct + (written << 1), bits0 + (leave << 1)),
+						Math.min(bits2 + ((leave + 1) << 1), bits4 + ((leave + 1) << 1)));
+			}
+			long nextBits4 = Math.min(bits0 + (2 << 1), direct + (3 << 1));
+			long nextBits0 = bits2 + (3 << 1);
+			long nextBits2 = bits4 + (3 << 1);
+			direct = nextDirect;
+			bits0 = nextBits0;
+			bits2 = nextBits2;
+			bits4 = nextBits4;
+		}
+		long shortest = Math.min(Math.min(direct, bits0 + (1 << 1)), Math.min(bits2 + (2 << 1),
+				bits4 + (2 << 1)));
+		return (shortest & 1) != 0;
+	}
+
+	/**
+	 * @return The number of bytes written to leave base 64 mode before <code>ch</code>, 
+	 *   with <code>bits</code> bits waiting
+	 */
+	private int leaveCost(int bits, char ch, byte unshift, boolean strict) {
+		int cost = bits != 0 ? 1 : 0;
+		if (base64.contains(ch) || ch == unshift || strict)
+			cost++;
+		return cost;
+	}
+
+	/**
+	 * <p>Writes the bytes necessary to leave <i>base 64 mode</i>. This might include an unshift 
+	 * character.</p>
+	 * 
+	 * @return The state in direct mode, 0
+	 */
+	private static int unshift(int state, char ch, ByteBuffer out, Base64Util base64,
+			byte unshift, boolean strict) {
+		if (state == 0)
+			return 0;
+		if (bitsToOutput(state) != 0)
+			out.put(base64.getChar(state & 0x3F));
+		if (base64.contains(ch) || ch == unshift || strict)
+			out.put(unshift);
+		return 0;
+	}
+
+	/**
+	 * <p>Writes the bytes necessary to encode a character in <i>base 64 mode</i>. All bytes
+	 * which are fully determined will be written. The state remembers the bits not yet 
+	 * fully determined.</p>
+	 * 
+	 * @return The state in base 64 mode
+	 */
+	private static int encodeBase64(int state, char ch, ByteBuffer out, Base64Util base64,
+			byte shift) {
+		if (state == 0)
+			out.put(shift);
+		int bitsToOutput = bitsToOutput(state) + 16;
+		int sextet = state & 0x3F;
+		while (bitsToOutput >= 6) {
+			bitsToOutput -= 6;
+			sextet += (ch >> bitsToOutput);
+			sextet &= 0x3F;
+			out.put(base64.getChar(sextet));
+			sextet = 0;
+		}
+		sextet = (ch << (6 - bitsToOutput)) & 0x3F;
+		return base64State(bitsToOutput, sextet);
+	}
+}
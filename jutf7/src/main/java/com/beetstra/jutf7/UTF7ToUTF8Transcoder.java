@@ -0,0 +1,230 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+
+/**
+ * <p>Transcodes bytes in one of the UTF-7 style charsets directly to UTF-8, without decoding 
+ * to an intermediate character buffer. Input can be supplied in chunks of any size; the 
+ * base 64 state and a pending high surrogate are carried over from one call to the next, 
+ * which makes this class suitable for push-style pipelines. The input is read one UTF-16 
+ * unit at a time by {@link EncodedText}, which keeps its state in an <code>int</code> 
+ * between calls.</p>
+ * 
+ * <p>The result is the same as decoding the input with the decoder of the charset and 
+ * encoding the characters using UTF-8, except that unpaired surrogates are written as the 
+ * replacement character U+FFFD, since they cannot be represented in UTF-8.</p>
+ * 
+ * <p>Usage follows {@link java.nio.charset.CharsetDecoder}: call 
+ * {@link #transcode(ByteBuffer, ByteBuffer)} until all input has been consumed, then call 
+ * {@link #flush(ByteBuffer)} once. Instances are not safe for use by multiple threads.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+public final class UTF7ToUTF8Transcoder {
+	/**
+	 * The maximum number of UTF-8 bytes written for a single input byte; a replacement 
+	 * character for an unpaired high surrogate followed by a three byte sequence.
+	 */
+	static final int MAX_BYTES_PER_BYTE = 6;
+	private static final char NO_SURROGATE = 0;
+	private static final char REPLACEMENT = '\uFFFD';
+	private final EncodedText text;
+	private final String charsetName;
+	private int state;
+	private char highSurrogate;
+	private boolean started;
+	private Object event;
+	private long eventInput;
+	private long eventOutput;
+	private int eventMalformed;
+
+	/**
+	 * @param charset UTF-7, X-UTF-7-OPTIONAL or X-MODIFIED-UTF-7, as returned by 
+	 *  {@link Charset#forName(String)}
+	 * @throws IllegalArgumentException if charset is not one of the UTF-7 style charsets
+	 */
+	public UTF7ToUTF8Transcoder(Charset charset) {
+		if (!(charset instanceof UTF7StyleCharset))
+			throw new IllegalArgumentException("not a UTF-7 style charset: " + charset);
+		UTF7StyleCharset cs = (UTF7StyleCharset) charset;
+		this.text = cs.text;
+		this.charsetName = cs.name();
+	}
+
+	/**
+	 * <p>Transcodes as many bytes as possible from the input buffer to the output buffer.</p>
+	 * 
+	 * <p>Returns <code>CoderResult.OVERFLOW</code> as soon as fewer than six bytes remain in 
+	 * the output buffer when a character is to be written, even if it would have fit. A 
+	 * malformed sequence is reported as <code>CoderResult.malformedForLength(1)</code>. 
+	 * Unlike a <code>CharsetDecoder</code>, the transcoder consumes the malformed sequence 
+	 * itself: the input buffer is positioned after it, nothing is written in its place, and 
+	 * the caller continues by calling this method again without skipping any input.</p>
+	 * 
+	 * @param in The UTF-7 encoded input
+	 * @param out The buffer receiving the UTF-8 encoded output
+	 * @return UNDERFLOW if all input was consumed, OVERFLOW if the output buffer is full, 
+	 *  or a malformed-input result
+	 */
+	public CoderResult transcode(ByteBuffer in, ByteBuffer out) {
+		if (!started) {
+			started = true;
+			event = CodecEvents.INSTANCE.beginDecode();
+		}
+		if (event == null)
+			return transcodeBytes(in, out);
+		int inStart = in.position();
+		int outStart = out.position();
+		CoderResult result = transcodeBytes(in, out);
+		eventInput += in.position() - inStart;
+		eventOutput += out.position() - outStart;
+		if (result.isMalformed())
+			eventMalformed++;
+		return result;
+	}
+
+	private CoderResult transcodeBytes(ByteBuffer in, ByteBuffer out) {
+		byte[] array = null;
+		int offset = 0;
+		if (in.hasArray()) {
+			array = in.array();
+			offset = in.arrayOffset();
+		}
+		int end = in.limit() + offset;
+		long current = EncodedText.resume(state, in.position() + offset);
+		CoderResult result = CoderResult.UNDERFLOW;
+		while (true) {
+			long next = text.next(array, in, end, current, false);
+			if (!EncodedText.hasUnit(next)) {
+				current = next;
+				break;
+			}
+			if (EncodedText.isMalformed(next)) {
+				// the malformed sequence ends with the last byte read, and is consumed
+				current = next;
+				result = CoderResult.malformedForLength(1);
+				break;
+			}
+			if (out.remaining() < MAX_BYTES_PER_BYTE) {
+				result = CoderResult.OVERFLOW;
+				break;
+			}
+			put(out, EncodedText.unit(next));
+			current = next;
+		}
+		state = EncodedText.suspend(current);
+		in.position(EncodedText.position(current) - offset);
+		return result;
+	}
+
+	/**
+	 * <p>Ends the transcoding of the input. Writes a replacement character if a high 
+	 * surrogate is still waiting for its low surrogate, and reports an unterminated base 64 
+	 * sequence in the same way the decoder of the charset does.</p>
+	 * 
+	 * @param out The buffer receiving the UTF-8 encoded output
+	 * @return UNDERFLOW on success, OVERFLOW if fewer than three bytes remain in the output 
+	 *  buffer, or a malformed-input result
+	 */
+	public CoderResult flush(ByteBuffer out) {
+		CoderResult result = CoderResult.UNDERFLOW;
+		if (highSurrogate != NO_SURROGATE) {
+			if (out.remaining() < 3)
+				return CoderResult.OVERFLOW;
+			highSurrogate = NO_SURROGATE;
+			putThreeBytes(out, REPLACEMENT);
+			eventOutput += 3;
+		}
+		// at the end of the input only the replacement of an unterminated sequence is read
+		if (EncodedText.hasUnit(text.next(null, null, 0, EncodedText.resume(state, 0), true))) {
+			state = 0;
+			eventMalformed++;
+			result = CoderResult.malformedForLength(1);
+		}
+		if (event != null)
+			CodecEvents.INSTANCE.endDecode(event, charsetName, eventInput, eventOutput,
+					eventMalformed);
+		clearEvent();
+		return result;
+	}
+
+	/**
+	 * Discards all state, making the instance ready to transcode a new input.
+	 */
+	public void reset() {
+		state = 0;
+		highSurrogate = NO_SURROGATE;
+		clearEvent();
+	}
+
+	private void clearEvent() {
+		started = false;
+		event = null;
+		eventInput = 0;
+		eventOutput = 0;
+		eventMalformed = 0;
+	}
+
+	/**
+	 * <p>Writes a decoded UTF-16 code unit as UTF-8, combining it with the preceding high 
+	 * surrogate if present.</p>
+	 */
+	private void put(ByteBuffer out, char ch) {
+		if (highSurrogate != NO_SURROGATE) {
+			if (ch >= 0xDC00 && ch <= 0xDFFF) {
+				int codePoint = ((highSurrogate - 0xD800) << 10) + (ch - 0xDC00) + 0x10000;
+				highSurrogate = NO_SURROGATE;
+				out.put((byte) (0xF0 | (codePoint >> 18)));
+				out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				out.put((byte) (0x80 | (codePoint & 0x3F)));
+				return;
+			}
+			highSurrogate = NO_SURROGATE;
+			putThreeBytes(out, REPLACEMENT);
+		}
+		if (ch < 0x80) {
+			out.put((byte) ch);
+		} else if (ch < 0x800) {
+			out.put((byte) (0xC0 | (ch >> 6)));
+			out.put((byte) (0x80 | (ch & 0x3F)));
+		} else if (ch >= 0xD800 && ch <= 0xDBFF) {
+			highSurrogate = ch;
+		} else if (ch >= 0xDC00 && ch <= 0xDFFF) {
+			putThreeBytes(out, REPLACEMENT);
+		} else {
+			putThreeBytes(out, ch);
+		}
+	}
+
+	private static void putThreeBytes(ByteBuffer out, char ch) {
+		out.put((byte) (0xE0 | (ch >> 12)));
+		out.put((byte) (0x80 | ((ch >> 6) & 0x3F)));
+		out.put((byte) (0x80 | (ch & 0x3F)));
+	}
+}
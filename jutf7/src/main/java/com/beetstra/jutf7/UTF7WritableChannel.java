@@ -0,0 +1,176 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * <p>Writes characters to a byte channel, such as a socket or file channel, encoding them 
+ * directly into two reusable direct buffers. When both are full, or the characters are 
+ * used up, the buffers are written with a single gathering write. This replaces an 
+ * <code>OutputStreamWriter</code> around <code>Channels.newOutputStream</code>, which 
+ * copies the text through two more buffers.</p>
+ * 
+ * <p>The characters written form one text, and a base 64 sequence may continue from one 
+ * write into the next. The text is ended by {@link #flush()}, which leaves base 64 and 
+ * writes what is left in the buffers; characters written after that start a new text.</p>
+ * 
+ * <p>A non-blocking channel may accept fewer bytes than there are in the buffers. The rest 
+ * is kept, and written before anything else by the next call; until then 
+ * {@link #write(CharBuffer)} accepts no characters and {@link #flush()} returns false, so 
+ * either can be retried when the selector reports the channel writable. The adapter is not 
+ * safe for use by multiple threads.</p>
+ * 
+ * @see UTF7StyleCharset#newWritableChannel(WritableByteChannel, int)
+ * @author Jaap Beetstra
+ */
+public final class UTF7WritableChannel implements Channel {
+	private static final CharBuffer EMPTY = CharBuffer.allocate(0);
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer[] buffers;
+	private int used;
+	private boolean ended;
+
+	UTF7WritableChannel(WritableByteChannel channel, UTF7StyleCharset charset, int bufferSize) {
+		if (bufferSize < 8)
+			throw new IllegalArgumentException("buffer size: " + bufferSize);
+		this.channel = channel;
+		this.encoder = charset.newEncoder();
+		this.buffers = new ByteBuffer[] { ByteBuffer.allocateDirect(bufferSize),
+				ByteBuffer.allocateDirect(bufferSize) };
+	}
+
+	/**
+	 * <p>Encodes characters and writes them to the channel. A blocking channel takes all 
+	 * characters; a non-blocking one may take fewer.</p>
+	 * 
+	 * @param src The characters to write
+	 * @return The number of characters taken from <code>src</code>
+	 * @throws IOException if the channel throws it
+	 */
+	public int write(CharBuffer src) throws IOException {
+		int start = src.position();
+		while (writePending() && src.hasRemaining()) {
+			for (used = 0; used < buffers.length; used++) {
+				buffers[used].clear();
+				CoderResult result = encoder.encode(src, buffers[used], false);
+				buffers[used].flip();
+				if (result.isError())
+					result.throwException();
+				if (result.isUnderflow()) {
+					used++;
+					break;
+				}
+			}
+		}
+		return src.position() - start;
+	}
+
+	/**
+	 * <p>Encodes characters and writes them to the channel.</p>
+	 * 
+	 * @param csq The characters to write
+	 * @return The number of characters taken from <code>csq</code>
+	 * @throws IOException if the channel throws it
+	 * @see #write(CharBuffer)
+	 */
+	public int write(CharSequence csq) throws IOException {
+		return write(CharBuffer.wrap(csq));
+	}
+
+	/**
+	 * <p>Ends the text written so far, leaving base 64 if necessary, and writes everything 
+	 * left in the buffers to the channel. This is where the encoder is flushed; flushing 
+	 * after each write would end base 64 sequences early, making the output longer.</p>
+	 * 
+	 * @return True if all bytes were written, false if a non-blocking channel did not take 
+	 *   them all, in which case <code>flush</code> is to be called again
+	 * @throws IOException if the channel throws it
+	 */
+	public boolean flush() throws IOException {
+		if (!writePending())
+			return false;
+		ByteBuffer buffer = buffers[0];
+		buffer.clear();
+		encoder.encode(EMPTY, buffer, true);
+		encoder.flush(buffer);
+		buffer.flip();
+		used = 1;
+		ended = true;
+		return writePending();
+	}
+
+	/**
+	 * Writes the bytes left in the buffers, and starts a new text once an ended one is 
+	 * written in full.
+	 * 
+	 * @return True if all bytes were written
+	 */
+	private boolean writePending() throws IOException {
+		while (used > 0 && (buffers[0].hasRemaining() || buffers[used - 1].hasRemaining())) {
+			long written;
+			if (channel instanceof GatheringByteChannel)
+				written = ((GatheringByteChannel) channel).write(buffers, 0, used);
+			else
+				written = channel.write(buffers[buffers[0].hasRemaining() ? 0 : 1]);
+			if (written == 0)
+				return false;
+		}
+		used = 0;
+		if (ended) {
+			encoder.reset();
+			ended = false;
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	/**
+	 * <p>Flushes, then closes the channel. Bytes a non-blocking channel did not take are 
+	 * lost; call {@link #flush()} until it returns true first.</p>
+	 * 
+	 * @throws IOException if the channel throws it
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
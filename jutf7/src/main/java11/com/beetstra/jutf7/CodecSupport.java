@@ -0,0 +1,143 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * <p>Platform dependent parts of the encoder and decoder, Java 11 version.</p>
+ * 
+ * <p>The workaround for Java 5 is never needed, so the encoder's check compiles away. Runs 
+ * of directly encoded bytes are recognised eight at a time, reading the byte array as 
+ * longs through a {@link VarHandle}. Characters from a buffer wrapping a 
+ * <code>String</code> are fetched in blocks with a bulk get, which copies straight out 
+ * of the compact string representation into the array of the encoder's 
+ * {@link CodecBlocks}.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class CodecSupport {
+	static final boolean FLUSH_HACK = false;
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private CodecSupport() {
+	}
+
+	/**
+	 * <p>Same contract as <code>decodeDirect</code> in the Java 7 version of this class.</p>
+	 */
+	static int decodeDirect(ByteBuffer in, CharBuffer out, byte shift, CodecBlocks blocks) {
+		if (!in.hasArray() || !out.hasArray())
+			return 0;
+		int copied = decodeDirect(in.array(), in.arrayOffset() + in.position(), out.array(),
+				out.arrayOffset() + out.position(), Math.min(in.remaining(), out.remaining()),
+				shift);
+		in.position(in.position() + copied);
+		out.position(out.position() + copied);
+		return copied;
+	}
+
+	private static int decodeDirect(byte[] src, int sp, char[] dst, int dp, int length, byte shift) {
+		long shifts = LOW_BITS * (shift & 0xFF);
+		int i = 0;
+		while (i + 8 <= length) {
+			long word = (long) LONGS.get(src, sp + i);
+			if (((word | zeroBytes(word ^ shifts)) & HIGH_BITS) != 0)
+				break;
+			for (int j = 0; j < 8; j++)
+				dst[dp + i + j] = (char) src[sp + i + j];
+			i += 8;
+		}
+		while (i < length) {
+			byte b = src[sp + i];
+			if (b < 0 || b == shift)
+				break;
+			dst[dp + i] = (char) b;
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return A value having the high bit set of at least the first zero byte in 
+	 *   <code>word</code>, and having no high bits set if there are none
+	 */
+	private static long zeroBytes(long word) {
+		return (word - LOW_BITS) & ~word;
+	}
+
+	/**
+	 * <p>Same contract as <code>encodeDirect</code> in the Java 7 version of this class.</p>
+	 */
+	static int encodeDirect(CharBuffer in, ByteBuffer out, long directLow, long directHigh,
+			CodecBlocks blocks) {
+		if (!out.hasArray())
+			return 0;
+		byte[] dst = out.array();
+		int dp = out.arrayOffset() + out.position();
+		int length = Math.min(in.remaining(), out.remaining());
+		int copied;
+		if (in.hasArray()) {
+			copied = encodeDirect(in.array(), in.arrayOffset() + in.position(), dst, dp, length,
+					directLow, directHigh);
+			in.position(in.position() + copied);
+		} else if (length >= CodecBlocks.SIZE) {
+			char[] block = blocks.chars();
+			int start = in.position();
+			copied = 0;
+			while (length - copied >= CodecBlocks.SIZE) {
+				in.get(block);
+				int n = encodeDirect(block, 0, dst, dp + copied, CodecBlocks.SIZE, directLow,
+						directHigh);
+				copied += n;
+				if (n < CodecBlocks.SIZE)
+					break;
+			}
+			in.position(start + copied);
+		} else
+			return 0;
+		out.position(out.position() + copied);
+		return copied;
+	}
+
+	private static int encodeDirect(char[] src, int sp, byte[] dst, int dp, int length,
+			long directLow, long directHigh) {
+		int i = 0;
+		while (i < length) {
+			char ch = src[sp + i];
+			if (ch >= 128 || ((ch < 64 ? directLow : directHigh) & (1L << ch)) == 0)
+				break;
+			dst[dp + i] = (byte) ch;
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,121 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>Emits Java Flight Recorder events for encode and decode operations. Only operations 
+ * reading at least <code>com.beetstra.jutf7.jfr.thresholdBytes</code> (default 64 KiB) or 
+ * taking at least <code>com.beetstra.jutf7.jfr.thresholdMillis</code> (default 10) 
+ * milliseconds are committed, so converting mailbox names does not flood recordings.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class JfrCodecEvents extends CodecEvents {
+	private static final long THRESHOLD_BYTES = Long.getLong(
+			"com.beetstra.jutf7.jfr.thresholdBytes", 64 * 1024).longValue();
+	private static final long THRESHOLD_NANOS = Long.getLong(
+			"com.beetstra.jutf7.jfr.thresholdMillis", 10).longValue() * 1000000L;
+
+	/*
+	 * Initialising the first event class starts up the JFR infrastructure, which takes 
+	 * hundreds of milliseconds. Nothing can be recorded before the recorder is initialised, 
+	 * so until then no events are created.
+	 */
+	Object beginDecode() {
+		if (!FlightRecorder.isInitialized())
+			return null;
+		return begin(new DecodeEvent());
+	}
+
+	Object beginEncode() {
+		if (!FlightRecorder.isInitialized())
+			return null;
+		return begin(new EncodeEvent());
+	}
+
+	void endDecode(Object token, String charsetName, long inputSize, long outputSize,
+			int malformed) {
+		end((Operation) token, charsetName, inputSize, outputSize, malformed);
+	}
+
+	void endEncode(Object token, String charsetName, long inputSize, long outputSize,
+			int malformed) {
+		end((Operation) token, charsetName, inputSize, outputSize, malformed);
+	}
+
+	private static Operation begin(Operation event) {
+		if (!event.isEnabled())
+			return null;
+		event.startNanos = System.nanoTime();
+		event.begin();
+		return event;
+	}
+
+	private static void end(Operation event, String charsetName, long inputSize,
+			long outputSize, int malformed) {
+		if (event == null)
+			return;
+		event.end();
+		if (inputSize < THRESHOLD_BYTES && System.nanoTime() - event.startNanos < THRESHOLD_NANOS)
+			return;
+		event.charset = charsetName;
+		event.inputSize = inputSize;
+		event.outputSize = outputSize;
+		event.malformed = malformed;
+		event.commit();
+	}
+
+	@Category("jutf7")
+	abstract static class Operation extends Event {
+		@Label("Charset")
+		String charset;
+		@Label("Input Size")
+		long inputSize;
+		@Label("Output Size")
+		long outputSize;
+		@Label("Malformed Sequences")
+		int malformed;
+		transient long startNanos;
+	}
+
+	@Name("jutf7.Decode")
+	@Label("UTF-7 Decode")
+	@Description("Decoding from a UTF-7 style charset; input size in bytes, output size in "
+			+ "chars, or in bytes when transcoding or converting")
+	static final class DecodeEvent extends Operation {
+	}
+
+	@Name("jutf7.Encode")
+	@Label("UTF-7 Encode")
+	@Description("Encoding to a UTF-7 style charset; input size in chars, output size in bytes")
+	static final class EncodeEvent extends Operation {
+	}
+}
@@ -0,0 +1,177 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * <p>Platform dependent parts of the encoder and decoder, Java 17 version.</p>
+ * 
+ * <p>Like the Java 11 version, but direct buffers are handled as well: blocks are moved 
+ * in and out of them with the absolute bulk get and put methods added in Java 13 and 16, 
+ * and scanned as arrays, using the arrays of the coder's {@link CodecBlocks}. The 
+ * positions of the buffers are only updated once, for the total number of characters 
+ * copied.</p>
+ * 
+ * @author Jaap Beetstra
+ */
+final class CodecSupport {
+	static final boolean FLUSH_HACK = false;
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private CodecSupport() {
+	}
+
+	/**
+	 * <p>Same contract as <code>decodeDirect</code> in the Java 7 version of this class, 
+	 * except that direct buffers are handled too.</p>
+	 */
+	static int decodeDirect(ByteBuffer in, CharBuffer out, byte shift, CodecBlocks blocks) {
+		int length = Math.min(in.remaining(), out.remaining());
+		int copied;
+		if (in.hasArray() && out.hasArray())
+			copied = decodeDirect(in.array(), in.arrayOffset() + in.position(), out.array(),
+					out.arrayOffset() + out.position(), length, shift);
+		else if (length >= CodecBlocks.SIZE) {
+			byte[] bytes = in.hasArray() ? null : blocks.bytes();
+			char[] chars = out.hasArray() ? null : blocks.chars();
+			copied = 0;
+			while (length - copied >= CodecBlocks.SIZE) {
+				byte[] src = bytes;
+				int sp = 0;
+				if (src == null) {
+					src = in.array();
+					sp = in.arrayOffset() + in.position() + copied;
+				} else
+					in.get(in.position() + copied, bytes);
+				int n;
+				if (chars == null)
+					n = decodeDirect(src, sp, out.array(), out.arrayOffset() + out.position()
+							+ copied, CodecBlocks.SIZE, shift);
+				else {
+					n = decodeDirect(src, sp, chars, 0, CodecBlocks.SIZE, shift);
+					out.put(out.position() + copied, chars, 0, n);
+				}
+				copied += n;
+				if (n < CodecBlocks.SIZE)
+					break;
+			}
+		} else
+			return 0;
+		in.position(in.position() + copied);
+		out.position(out.position() + copied);
+		return copied;
+	}
+
+	private static int decodeDirect(byte[] src, int sp, char[] dst, int dp, int length, byte shift) {
+		long shifts = LOW_BITS * (shift & 0xFF);
+		int i = 0;
+		while (i + 8 <= length) {
+			long word = (long) LONGS.get(src, sp + i);
+			if (((word | zeroBytes(word ^ shifts)) & HIGH_BITS) != 0)
+				break;
+			for (int j = 0; j < 8; j++)
+				dst[dp + i + j] = (char) src[sp + i + j];
+			i += 8;
+		}
+		while (i < length) {
+			byte b = src[sp + i];
+			if (b < 0 || b == shift)
+				break;
+			dst[dp + i] = (char) b;
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return A value having the high bit set of at least the first zero byte in 
+	 *   <code>word</code>, and having no high bits set if there are none
+	 */
+	private static long zeroBytes(long word) {
+		return (word - LOW_BITS) & ~word;
+	}
+
+	/**
+	 * <p>Same contract as <code>encodeDirect</code> in the Java 7 version of this class, 
+	 * except that direct buffers are handled too.</p>
+	 */
+	static int encodeDirect(CharBuffer in, ByteBuffer out, long directLow, long directHigh,
+			CodecBlocks blocks) {
+		int length = Math.min(in.remaining(), out.remaining());
+		int copied;
+		if (in.hasArray() && out.hasArray())
+			copied = encodeDirect(in.array(), in.arrayOffset() + in.position(), out.array(),
+					out.arrayOffset() + out.position(), length, directLow, directHigh);
+		else if (length >= CodecBlocks.SIZE) {
+			char[] chars = in.hasArray() ? null : blocks.chars();
+			byte[] bytes = out.hasArray() ? null : blocks.bytes();
+			copied = 0;
+			while (length - copied >= CodecBlocks.SIZE) {
+				char[] src = chars;
+				int sp = 0;
+				if (src == null) {
+					src = in.array();
+					sp = in.arrayOffset() + in.position() + copied;
+				} else
+					in.get(in.position() + copied, chars);
+				int n;
+				if (bytes == null)
+					n = encodeDirect(src, sp, out.array(), out.arrayOffset() + out.position()
+							+ copied, CodecBlocks.SIZE, directLow, directHigh);
+				else {
+					n = encodeDirect(src, sp, bytes, 0, CodecBlocks.SIZE, directLow, directHigh);
+					out.put(out.position() + copied, bytes, 0, n);
+				}
+				copied += n;
+				if (n < CodecBlocks.SIZE)
+					break;
+			}
+		} else
+			return 0;
+		in.position(in.position() + copied);
+		out.position(out.position() + copied);
+		return copied;
+	}
+
+	private static int encodeDirect(char[] src, int sp, byte[] dst, int dp, int length,
+			long directLow, long directHigh) {
+		int i = 0;
+		while (i < length) {
+			char ch = src[sp + i];
+			if (ch >= 128 || ((ch < 64 ? directLow : directHigh) & (1L << ch)) == 0)
+				break;
+			dst[dp + i] = (byte) ch;
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,313 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.util.Comparator;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the paths meant to be used on every message do not allocate once they are 
+ * compiled, given buffers allocated up front. Each path is called often enough to be 
+ * compiled, after which the bytes allocated by the test thread are measured over a number 
+ * of calls. Skipped when the virtual machine cannot measure allocation per thread.
+ * 
+ * <p>Paths which must not allocate even before escape analysis removes short-lived objects 
+ * are also measured cold: over a few calls, run by the interpreter and the first tier 
+ * compiler, neither of which removes allocations.</p>
+ */
+public class AllocationBudgetTest extends TestCase {
+	private static final int WARM_UP = 20000;
+	private static final int CALLS = 10000;
+	private static final int COLD_CALLS = 50;
+	private static final String TEXT = "Hi Mom -\u263A-! A\u2262\u0391. \u65E5\u672C\u8A9E ~/&+";
+	/** TEXT around an ASCII run longer than the blocks of CodecSupport */
+	private static final String LONG_TEXT = TEXT
+			+ repeat("The quick brown fox jumps over the lazy dog. ", 8) + TEXT;
+	private com.sun.management.ThreadMXBean threads;
+	private int sink;
+
+	private interface Call {
+		void run() throws Exception;
+	}
+
+	protected void setUp() throws Exception {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported()) {
+				sunBean.setThreadAllocatedMemoryEnabled(true);
+				threads = sunBean;
+			}
+		}
+	}
+
+	public void testDecoderLoop() throws Exception {
+		String[] texts = new String[] { TEXT, LONG_TEXT };
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int t = 0; t < texts.length; t++) {
+				byte[] encoded = texts[t].getBytes(CharsetTestUtil.CHARSETS[c].name());
+				final CharsetDecoder decoder = CharsetTestUtil.CHARSETS[c].newDecoder();
+				final CharBuffer out = CharBuffer.allocate(encoded.length + 1);
+				ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+				direct.put(encoded).flip();
+				ByteBuffer[] ins = new ByteBuffer[] { ByteBuffer.wrap(encoded), direct };
+				for (int i = 0; i < ins.length; i++) {
+					final ByteBuffer in = ins[i];
+					assertBudget(CharsetTestUtil.CHARSETS[c].name() + " decoder", 0, new Call() {
+						public void run() throws Exception {
+							in.rewind();
+							out.clear();
+							decoder.reset();
+							decoder.decode(in, out, true);
+							decoder.flush(out);
+							sink += out.position();
+						}
+					});
+				}
+			}
+		}
+	}
+
+	public void testEncoderLoop() throws Exception {
+		String[] texts = new String[] { TEXT, LONG_TEXT };
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int t = 0; t < texts.length; t++) {
+				final CharsetEncoder encoder = CharsetTestUtil.CHARSETS[c].newEncoder();
+				int length = texts[t].length();
+				CharBuffer direct = ByteBuffer.allocateDirect(2 * length).asCharBuffer();
+				direct.put(texts[t]).flip();
+				// array-backed, String-backed and direct input, the last two having no array
+				CharBuffer[] ins = new CharBuffer[] { CharBuffer.wrap(texts[t].toCharArray()),
+						CharBuffer.wrap(texts[t]), direct };
+				ByteBuffer[] outs = new ByteBuffer[] { ByteBuffer.allocate(5 * length),
+						ByteBuffer.allocateDirect(5 * length), ByteBuffer.allocate(5 * length) };
+				for (int i = 0; i < ins.length; i++) {
+					final CharBuffer in = ins[i];
+					final ByteBuffer out = outs[i];
+					assertBudget(CharsetTestUtil.CHARSETS[c].name() + " encoder", 0, new Call() {
+						public void run() throws Exception {
+							in.rewind();
+							out.clear();
+							encoder.reset();
+							encoder.encode(in, out, true);
+							encoder.flush(out);
+							sink += out.position();
+						}
+					});
+				}
+			}
+		}
+	}
+
+	public void testStepFunctions() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			final UTF7StyleCharset cs = CharsetTestUtil.CHARSETS[c];
+			final ByteBuffer encoded = ByteBuffer.wrap(TEXT.getBytes(cs.name()));
+			final CharBuffer chars = CharBuffer.wrap(TEXT.toCharArray());
+			final CharBuffer decoded = CharBuffer.allocate(encoded.capacity() + 1);
+			final ByteBuffer bytes = ByteBuffer.allocate(TEXT.length() * 5);
+			assertBudget(cs.name() + " step functions", 0, new Call() {
+				public void run() throws Exception {
+					encoded.rewind();
+					decoded.clear();
+					sink += cs.decodeEnd(cs.decodeStep(0, encoded, decoded), decoded);
+					chars.rewind();
+					bytes.clear();
+					sink += cs.encodeEnd(cs.encodeStep(0, chars, bytes), bytes);
+				}
+			});
+		}
+	}
+
+	public void testScatterGather() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			final UTF7StyleCharset cs = CharsetTestUtil.CHARSETS[c];
+			byte[] encoded = TEXT.getBytes(cs.name());
+			int half = encoded.length / 2;
+			final ByteBuffer[] srcs = new ByteBuffer[] { ByteBuffer.wrap(encoded, 0, half),
+					ByteBuffer.wrap(encoded, half, encoded.length - half) };
+			final CharBuffer decoded = CharBuffer.allocate(encoded.length + 1);
+			final CharBuffer chars = CharBuffer.wrap(TEXT.toCharArray());
+			final ByteBuffer[] dsts = new ByteBuffer[] { ByteBuffer.allocate(TEXT.length() * 5),
+					ByteBuffer.allocate(TEXT.length() * 5) };
+			assertBudget(cs.name() + " buffer chains", 0, new Call() {
+				public void run() throws Exception {
+					srcs[0].position(0);
+					srcs[1].position(srcs[0].limit());
+					decoded.clear();
+					sink += cs.decode(srcs, decoded);
+					chars.rewind();
+					dsts[0].clear();
+					dsts[1].clear();
+					sink += cs.encode(chars, dsts);
+				}
+			});
+		}
+	}
+
+	public void testTranscoder() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			byte[] encoded = TEXT.getBytes(CharsetTestUtil.CHARSETS[c].name());
+			final UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(
+					CharsetTestUtil.CHARSETS[c]);
+			final ByteBuffer in = ByteBuffer.wrap(encoded);
+			final ByteBuffer out = ByteBuffer.allocate(encoded.length * 3 + 3);
+			assertBudget(CharsetTestUtil.CHARSETS[c].name() + " transcoder", 0, new Call() {
+				public void run() throws Exception {
+					in.rewind();
+					out.clear();
+					transcoder.reset();
+					transcoder.transcode(in, out);
+					transcoder.flush(out);
+					sink += out.position();
+				}
+			});
+		}
+	}
+
+	public void testDecodedSearch() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			final UTF7StyleCharset cs = CharsetTestUtil.CHARSETS[c];
+			final byte[] encoded = TEXT.getBytes(cs.name());
+			assertBudget(cs.name() + " search", 0, new Call() {
+				public void run() throws Exception {
+					sink += cs.hashDecoded(encoded);
+					if (cs.equalsDecoded(encoded, TEXT))
+						sink++;
+					if (cs.startsWithDecoded(encoded, "Hi Mom"))
+						sink++;
+					if (cs.containsDecoded(encoded, "\u672C\u8A9E"))
+						sink++;
+				}
+			});
+		}
+	}
+
+	public void testNameComparator() throws Exception {
+		final Comparator<byte[]> comparator = UTF7Charsets.X_MODIFIED_UTF_7.nameComparator();
+		final byte[] a = TEXT.getBytes(UTF7Charsets.X_MODIFIED_UTF_7.name());
+		final byte[] b = (TEXT + "x").getBytes(UTF7Charsets.X_MODIFIED_UTF_7.name());
+		assertBudget("name comparator", 0, new Call() {
+			public void run() throws Exception {
+				sink += comparator.compare(a, b);
+			}
+		});
+	}
+
+	public void testMemoHit() throws Exception {
+		final MailboxNameMemo memo = UTF7Charsets.X_MODIFIED_UTF_7.newNameMemo(16);
+		final String name = "INBOX/\u65E5\u672C\u8A9E";
+		memo.encodeName(name);
+		assertBudget("memo hit", 0, new Call() {
+			public void run() throws Exception {
+				sink += memo.encodeName(name).bytes().length;
+			}
+		});
+	}
+
+	public void testPathCodecHit() throws Exception {
+		final MailboxPathCodec codec = UTF7Charsets.X_MODIFIED_UTF_7.pathCodec('/');
+		final byte[] encoded = codec.encode("INBOX/\u65E5\u672C\u8A9E/" + TEXT).bytes();
+		// the lookup key
+		assertBudget("path codec hit", 32, new Call() {
+			public void run() throws Exception {
+				sink += codec.decode(encoded).length();
+			}
+		});
+	}
+
+	public void testBuilder() throws Exception {
+		final UTF7Builder builder = UTF7Charsets.UTF_7.newBuilder();
+		for (int i = 0; i < 4; i++)
+			builder.append(TEXT);
+		Call call = new Call() {
+			public void run() throws Exception {
+				builder.clear();
+				for (int i = 0; i < TEXT.length(); i++)
+					builder.append(TEXT.charAt(i));
+				builder.append(TEXT);
+				builder.append(TEXT, 3, 12);
+				sink += builder.length();
+			}
+		};
+		assertBudget("cold builder", 0, 1, COLD_CALLS, call);
+		assertBudget("builder", 0, call);
+	}
+
+	public void testLikelihood() throws Exception {
+		final byte[] encoded = TEXT.getBytes(UTF7Charsets.UTF_7.name());
+		// the result is one small object
+		assertBudget("likelihood", 64, new Call() {
+			public void run() throws Exception {
+				sink += UTF7Charsets.UTF_7.likelihood(encoded).getUnits();
+			}
+		});
+	}
+
+	public void testConverter() throws Exception {
+		final UTF7Converter converter = new UTF7Converter(UTF7Charsets.UTF_7,
+				UTF7Charsets.X_MODIFIED_UTF_7);
+		final byte[] encoded = TEXT.getBytes(UTF7Charsets.UTF_7.name());
+		// the working array of five bytes per input byte, the buffer wrapping it, and the 
+		// array returned
+		long budget = 5 * encoded.length + converter.convert(encoded).length + 128;
+		assertBudget("converter", budget, new Call() {
+			public void run() throws Exception {
+				sink += converter.convert(encoded).length;
+			}
+		});
+	}
+
+	private static String repeat(String s, int times) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < times; i++)
+			sb.append(s);
+		return sb.toString();
+	}
+
+	private void assertBudget(String path, long budget, Call call) throws Exception {
+		assertBudget(path, budget, WARM_UP, CALLS, call);
+	}
+
+	private void assertBudget(String path, long budget, int warmUp, int calls, Call call)
+			throws Exception {
+		if (threads == null)
+			return;
+		for (int i = 0; i < warmUp; i++)
+			call.run();
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < calls; i++)
+			call.run();
+		long perCall = (threads.getThreadAllocatedBytes(thread) - before) / calls;
+		assertTrue(path + " allocated " + perCall + " bytes per call, budget " + budget,
+				perCall <= budget);
+	}
+}
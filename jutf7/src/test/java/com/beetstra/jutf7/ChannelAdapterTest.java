@@ -0,0 +1,194 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.MalformedInputException;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ChannelAdapterTest extends TestCase {
+	private Random random;
+
+	protected void setUp() throws Exception {
+		random = new Random(42);
+	}
+
+	public void testWrite() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 200; i++) {
+				String s = CharsetTestUtil.randomString(random, 300);
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				UTF7WritableChannel channel = CharsetTestUtil.CHARSETS[c].newWritableChannel(
+						Channels.newChannel(bytes), 8 + random.nextInt(32));
+				int start = 0;
+				while (start < s.length()) {
+					int end = Math.min(s.length(), start + random.nextInt(20));
+					assertEquals(end - start, channel.write(s.substring(start, end)));
+					start = end;
+				}
+				assertTrue(channel.flush());
+				assertEquals(new String(s.getBytes(CharsetTestUtil.CHARSETS[c].name()),
+						"US-ASCII"), bytes.toString("US-ASCII"));
+			}
+		}
+	}
+
+	public void testFlushEndsText() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		UTF7WritableChannel channel = UTF7Charsets.UTF_7.newWritableChannel(Channels
+				.newChannel(bytes), 16);
+		channel.write("\u65E5");
+		channel.write("\u672C");
+		assertEquals("+ZeVnL", bytes.toString("US-ASCII"));
+		assertTrue(channel.flush());
+		channel.write("\u65E5");
+		channel.close();
+		assertEquals("+ZeVnLA-+ZeU-", bytes.toString("US-ASCII"));
+	}
+
+	public void testNonBlockingWrite() throws Exception {
+		String s = "Entw\u00FCrfe/\u65E5\u672C\u8A9E (2024) ";
+		SlowChannel slow = new SlowChannel();
+		UTF7WritableChannel channel = UTF7Charsets.X_MODIFIED_UTF_7.newWritableChannel(slow, 8);
+		CharBuffer src = CharBuffer.wrap(s + s);
+		while (src.hasRemaining())
+			channel.write(src);
+		while (!channel.flush()) {
+			// retry as a selector would
+		}
+		assertEquals(new String((s + s).getBytes("X-MODIFIED-UTF-7"), "US-ASCII"), slow.bytes
+				.toString("US-ASCII"));
+		assertTrue(slow.calls > 10);
+	}
+
+	public void testRead() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 200; i++) {
+				String s = CharsetTestUtil.randomString(random, 300);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				UTF7ReadableChannel channel = CharsetTestUtil.CHARSETS[c].newReadableChannel(
+						Channels.newChannel(new ByteArrayInputStream(encoded)),
+						8 + random.nextInt(32), true);
+				assertEquals(s, readAll(channel, 1 + random.nextInt(10)));
+			}
+		}
+	}
+
+	public void testReadMalformed() throws Exception {
+		byte[] bytes = "ab&Jjo!-cd&Jj".getBytes("US-ASCII");
+		UTF7ReadableChannel channel = UTF7Charsets.X_MODIFIED_UTF_7.newReadableChannel(Channels
+				.newChannel(new ByteArrayInputStream(bytes)), 8, false);
+		assertEquals("ab\u263A\uFFFDcd\uFFFD", readAll(channel, 3));
+		channel = UTF7Charsets.X_MODIFIED_UTF_7.newReadableChannel(Channels
+				.newChannel(new ByteArrayInputStream(bytes)), 8, true);
+		try {
+			readAll(channel, 3);
+			fail("Expected MalformedInputException");
+		} catch (MalformedInputException e) {
+			// expected
+		}
+	}
+
+	public void testNonBlockingRead() throws Exception {
+		SlowChannel slow = new SlowChannel();
+		slow.input = ByteBuffer.wrap("Hi Mom -+Jjo--!".getBytes("US-ASCII"));
+		UTF7ReadableChannel channel = UTF7Charsets.UTF_7.newReadableChannel(slow, 8, true);
+		CharBuffer dst = CharBuffer.allocate(32);
+		int zeros = 0;
+		int count;
+		while ((count = channel.read(dst)) >= 0) {
+			if (count == 0)
+				zeros++;
+		}
+		dst.flip();
+		assertEquals("Hi Mom -\u263A-!", dst.toString());
+		assertTrue(zeros > 0);
+	}
+
+	public void testBufferSize() throws Exception {
+		try {
+			UTF7Charsets.UTF_7.newWritableChannel(Channels.newChannel(new ByteArrayOutputStream()),
+					4);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static String readAll(UTF7ReadableChannel channel, int size) throws IOException {
+		StringBuffer sb = new StringBuffer();
+		CharBuffer dst = CharBuffer.allocate(size);
+		while (channel.read(dst) >= 0) {
+			dst.flip();
+			sb.append(dst);
+			dst.clear();
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A non-blocking channel taking or giving at most three bytes per call, and nothing 
+	 * every other call.
+	 */
+	private static class SlowChannel implements WritableByteChannel, ReadableByteChannel {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer input;
+		int calls;
+
+		public int write(ByteBuffer src) {
+			if (calls++ % 2 == 0)
+				return 0;
+			int count = Math.min(3, src.remaining());
+			for (int i = 0; i < count; i++)
+				bytes.write(src.get());
+			return count;
+		}
+
+		public int read(ByteBuffer dst) {
+			if (calls++ % 2 == 0)
+				return 0;
+			if (!input.hasRemaining())
+				return -1;
+			int count = Math.min(Math.min(3, input.remaining()), dst.remaining());
+			for (int i = 0; i < count; i++)
+				dst.put(input.get());
+			return count;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+	}
+}
@@ -86,6 +86,27 @@ public class CharsetProviderTest extends TestCase {
 		assertTrue(found.contains(charset3));
 	}
 
+	public void testNearMisses() throws Exception {
+		assertNull(tested.charsetForName("UTF-8"));
+		assertNull(tested.charsetForName("UTF-7X"));
+		assertNull(tested.charsetForName("UTF7"));
+		assertNull(tested.charsetForName("X-RFC3502"));
+		assertNull(tested.charsetForName("X-MODIFIED-UTF-8"));
+		assertNull(tested.charsetForName("X-UTF-7-OPTIONAl-"));
+		assertNull(tested.charsetForName(""));
+	}
+
+	public void testConstants() throws Exception {
+		assertSame(UTF7Charsets.UTF_7, tested.charsetForName("utf-7"));
+		assertSame(UTF7Charsets.UTF_7, tested.charsetForName("CsUnicode11Utf7"));
+		assertSame(UTF7Charsets.X_UTF_7_OPTIONAL, tested.charsetForName("x-rfc-2152-OPTIONAL"));
+		assertSame(UTF7Charsets.X_MODIFIED_UTF_7, tested.charsetForName("X-Imap4-Modified-Utf-7"));
+		assertSame(UTF7Charsets.UTF_7, new CharsetProvider().charsetForName("UTF-7"));
+		assertEquals("UTF-7", UTF7Charsets.UTF_7.name());
+		assertEquals("X-UTF-7-OPTIONAL", UTF7Charsets.X_UTF_7_OPTIONAL.name());
+		assertEquals("X-MODIFIED-UTF-7", UTF7Charsets.X_MODIFIED_UTF_7.name());
+	}
+
 	public void testTurkish() throws Exception {
 		Locale.setDefault(new Locale("tr", "TR"));
 		assertEquals(tested.charsetForName("UTF-7"), tested.charsetForName("unicode-1-1-utf-7"));
@@ -0,0 +1,101 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Random;
+
+abstract class CharsetTestUtil {
+	static final UTF7StyleCharset[] CHARSETS = new UTF7StyleCharset[] { UTF7Charsets.UTF_7,
+			UTF7Charsets.X_UTF_7_OPTIONAL, UTF7Charsets.X_MODIFIED_UTF_7 };
+	/** Direct, base 64 and shift characters, and a surrogate pair */
+	static final String CHARS = "aAz~&+-/. !\u00E9\u0100\u65E5\u672C\uD800\uDC00";
+	/** Bytes making up encoded text, well-formed or not */
+	static final String BYTES = "&-+!AGEaz,/~\u00E9";
+
+	/**
+	 * @return Up to 11 bytes taken from {@link #BYTES}
+	 */
+	static byte[] randomBytes(Random random) throws UnsupportedEncodingException {
+		StringBuilder sb = new StringBuilder();
+		int length = random.nextInt(12);
+		for (int i = 0; i < length; i++)
+			sb.append(BYTES.charAt(random.nextInt(BYTES.length())));
+		return sb.toString().getBytes("ISO-8859-1");
+	}
+
+	/**
+	 * @return Fewer than <code>maxLength</code> characters taken from {@link #CHARS}
+	 */
+	static String randomString(Random random, int maxLength) {
+		return randomString(random, CHARS, maxLength);
+	}
+
+	/**
+	 * @return Fewer than <code>maxLength</code> characters taken from <code>chars</code>
+	 */
+	static String randomString(Random random, String chars, int maxLength) {
+		StringBuilder sb = new StringBuilder();
+		int length = random.nextInt(maxLength);
+		for (int i = 0; i < length; i++)
+			sb.append(chars.charAt(random.nextInt(chars.length())));
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes with malformed input replaced, including an unterminated base 64 sequence at
+	 * the end.
+	 */
+	static String decode(UTF7StyleCharset cs, byte[] bytes) {
+		CharsetDecoder decoder = cs.newDecoder().onMalformedInput(CodingErrorAction.REPLACE);
+		CharBuffer out = CharBuffer.allocate(bytes.length + 1);
+		decoder.decode(ByteBuffer.wrap(bytes), out, true);
+		if (decoder.flush(out) != CoderResult.UNDERFLOW)
+			out.put('\uFFFD');
+		out.flip();
+		return out.toString();
+	}
+
+	static void outToSB(ByteBuffer out, StringBuffer sb) throws UnsupportedEncodingException {
+		out.flip();
+		sb.append(CharsetTestUtil.asString(out));
+		out.clear();
+	}
+
+	static String asString(ByteBuffer buffer) throws UnsupportedEncodingException {
+		byte[] bytes = new byte[buffer.limit()];
+		buffer.get(bytes);
+		return new String(bytes, "US-ASCII");
+	}
+
+	static ByteBuffer wrap(String string) throws UnsupportedEncodingException {
+		byte[] bytes = string.getBytes("US-ASCII");
+		return ByteBuffer.wrap(bytes);
+	}
+}
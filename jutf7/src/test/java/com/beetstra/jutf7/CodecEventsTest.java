@@ -0,0 +1,127 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+public class CodecEventsTest extends TestCase {
+	private static final int LARGE = 100 * 1024;
+	private UTF7StyleCharset tested;
+	private Recording recording;
+
+	protected void setUp() throws Exception {
+		tested = new UTF7Charset("X-JFR-TEST", new String[] {}, false);
+		recording = new Recording();
+		recording.enable("jutf7.Decode");
+		recording.enable("jutf7.Encode");
+		recording.start();
+	}
+
+	protected void tearDown() throws Exception {
+		recording.close();
+	}
+
+	public void testJfrImplementationLoaded() throws Exception {
+		assertEquals("com.beetstra.jutf7.JfrCodecEvents", CodecEvents.INSTANCE.getClass()
+				.getName());
+	}
+
+	public void testDecode() throws Exception {
+		tested.newDecoder().decode(ByteBuffer.wrap(largeInput()));
+		tested.newDecoder().decode(CharsetTestUtil.wrap("Hi Mom +Jjo-!"));
+		List events = events("jutf7.Decode");
+		assertEquals(1, events.size());
+		RecordedEvent event = (RecordedEvent) events.get(0);
+		assertEquals(LARGE, event.getLong("inputSize"));
+		assertEquals(LARGE, event.getLong("outputSize"));
+		assertEquals(0, event.getInt("malformed"));
+	}
+
+	public void testEncode() throws Exception {
+		tested.newEncoder().encode(CharBuffer.wrap(new String(largeInput(), "US-ASCII")));
+		tested.newEncoder().encode(CharBuffer.wrap("Hi Mom \u263A!"));
+		List events = events("jutf7.Encode");
+		assertEquals(1, events.size());
+		RecordedEvent event = (RecordedEvent) events.get(0);
+		assertEquals(LARGE, event.getLong("inputSize"));
+		assertEquals(LARGE, event.getLong("outputSize"));
+	}
+
+	public void testTranscoder() throws Exception {
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(tested);
+		ByteBuffer out = ByteBuffer.allocate(1024);
+		ByteBuffer in = ByteBuffer.wrap(largeInput());
+		while (transcoder.transcode(in, out).isOverflow())
+			out.clear();
+		transcoder.flush(out);
+		List events = events("jutf7.Decode");
+		assertEquals(1, events.size());
+		assertEquals(LARGE, ((RecordedEvent) events.get(0)).getLong("inputSize"));
+	}
+
+	public void testConverter() throws Exception {
+		Charset modified = new ModifiedUTF7Charset("X-MODIFIED-UTF-7", new String[] {});
+		new UTF7Converter(tested, modified).convert(largeInput());
+		new UTF7Converter(tested, modified).convert("+Jjo-".getBytes("US-ASCII"));
+		List events = events("jutf7.Decode");
+		assertEquals(1, events.size());
+		assertEquals(LARGE, ((RecordedEvent) events.get(0)).getLong("outputSize"));
+	}
+
+	private static byte[] largeInput() {
+		byte[] bytes = new byte[LARGE];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) ('a' + i % 26);
+		return bytes;
+	}
+
+	private List events(String name) throws Exception {
+		recording.stop();
+		File file = File.createTempFile("jutf7", ".jfr");
+		try {
+			recording.dump(file.toPath());
+			List found = new ArrayList();
+			for (Iterator iter = RecordingFile.readAllEvents(file.toPath()).iterator(); iter
+					.hasNext();) {
+				RecordedEvent event = (RecordedEvent) iter.next();
+				if (event.getEventType().getName().equals(name)
+						&& "X-JFR-TEST".equals(event.getString("charset")))
+					found.add(event);
+			}
+			return found;
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Checks the bulk copying in {@link CodecSupport} gives the same results for all kinds of 
+ * buffers as coding one character at a time. When the tests run against the multi-release 
+ * jar, this covers the implementation for the running JDK.
+ */
+public class CodecSupportTest extends TestCase {
+	private static final String[] PIECES = new String[] { "abcdefghijklmnopqrstuvwxyz",
+			"INBOX.Sent Items", "0123456789", "+", "&", "-", "~", "!\"#", "\u00E9",
+			"\u65E5\u672C\u8A9E", "\t\r\n", "\uD83D\uDE00", "." };
+	private Charset[] charsets;
+
+	protected void setUp() throws Exception {
+		charsets = new Charset[] { new UTF7Charset("UTF-7", new String[] {}, false),
+				new UTF7Charset("X-UTF-7-OPTIONAL", new String[] {}, true),
+				new ModifiedUTF7Charset("X-MODIFIED-UTF-7", new String[] {}) };
+	}
+
+	public void testLongDirectRuns() throws Exception {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < 300; i++)
+			sb.append((char) ('a' + i % 26));
+		String ascii = sb.toString();
+		for (int i = 0; i < charsets.length; i++) {
+			assertRoundTrip(charsets[i], ascii);
+			assertRoundTrip(charsets[i], ascii + "\u00E9" + ascii);
+			assertRoundTrip(charsets[i], "\u00E9" + ascii.substring(0, 130) + "&+-"
+					+ ascii.substring(0, 65));
+		}
+	}
+
+	public void testRandomMixes() throws Exception {
+		Random random = new Random(31);
+		for (int n = 0; n < 200; n++) {
+			StringBuffer sb = new StringBuffer();
+			int pieces = random.nextInt(40);
+			for (int i = 0; i < pieces; i++) {
+				String piece = PIECES[random.nextInt(PIECES.length)];
+				int repeat = 1 + random.nextInt(8);
+				for (int j = 0; j < repeat; j++)
+					sb.append(piece);
+			}
+			for (int i = 0; i < charsets.length; i++)
+				assertRoundTrip(charsets[i], sb.toString());
+		}
+	}
+
+	public void testShiftInsideBlock() throws Exception {
+		for (int pos = 0; pos < 80; pos++) {
+			StringBuffer sb = new StringBuffer();
+			for (int i = 0; i < 80; i++)
+				sb.append(i == pos ? '+' : 'x');
+			assertDecodedAlike(charsets[0], sb.toString().getBytes("US-ASCII"));
+			assertDecodedAlike(charsets[2], sb.toString().replace('+', '&').getBytes("US-ASCII"));
+		}
+	}
+
+	public void testNonAsciiInput() throws Exception {
+		byte[] bytes = new byte[100];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) 'a';
+		bytes[70] = (byte) 0xE9;
+		for (int i = 0; i < charsets.length; i++)
+			assertDecodedAlike(charsets[i], bytes);
+	}
+
+	private void assertRoundTrip(Charset charset, String string) throws Exception {
+		String expected = encodeSingly(charset, string);
+		assertEncoded(expected, charset, CharBuffer.wrap(string), ByteBuffer.allocate(5 * string
+				.length() + 10));
+		assertEncoded(expected, charset, CharBuffer.wrap(string.toCharArray()), ByteBuffer
+				.allocate(5 * string.length() + 10));
+		assertEncoded(expected, charset, CharBuffer.wrap(string.toCharArray()), ByteBuffer
+				.allocateDirect(5 * string.length() + 10));
+		assertEncoded(expected, charset, CharBuffer.wrap(string), ByteBuffer
+				.allocateDirect(5 * string.length() + 10));
+		CharBuffer sliced = CharBuffer.wrap(("12" + string).toCharArray());
+		sliced.position(2);
+		ByteBuffer out = ByteBuffer.allocate(5 * string.length() + 20);
+		out.position(3);
+		assertEncoded(expected, charset, sliced.slice(), out.slice());
+		assertEquals(string, charset.decode(ByteBuffer.wrap(expected.getBytes("US-ASCII")))
+				.toString());
+		assertDecodedAlike(charset, expected.getBytes("US-ASCII"));
+	}
+
+	private void assertEncoded(String expected, Charset charset, CharBuffer in, ByteBuffer out)
+			throws Exception {
+		CharsetEncoder encoder = charset.newEncoder();
+		assertTrue(encoder.encode(in, out, true).isUnderflow());
+		assertTrue(encoder.flush(out).isUnderflow());
+		out.flip();
+		byte[] bytes = new byte[out.remaining()];
+		out.get(bytes);
+		assertEquals(expected, new String(bytes, "US-ASCII"));
+	}
+
+	private String encodeSingly(Charset charset, String string) throws Exception {
+		CharsetEncoder encoder = charset.newEncoder();
+		ByteBuffer out = ByteBuffer.allocate(5 * string.length() + 10);
+		for (int i = 0; i < string.length(); i++) {
+			CharBuffer in = CharBuffer.wrap(string, i, i + 1);
+			CoderResult result = encoder.encode(in, out, i == string.length() - 1);
+			if (in.hasRemaining()) {
+				in = CharBuffer.wrap(string, i, i + 2);
+				result = encoder.encode(in, out, i == string.length() - 2);
+				i++;
+			}
+			assertTrue(result.isUnderflow());
+		}
+		encoder.encode(CharBuffer.allocate(0), out, true);
+		encoder.flush(out);
+		out.flip();
+		return CharsetTestUtil.asString(out);
+	}
+
+	private void assertDecodedAlike(Charset charset, byte[] bytes) throws Exception {
+		String expected = decodeSingly(charset, bytes);
+		assertEquals(expected, decode(charset, ByteBuffer.wrap(bytes), CharBuffer
+				.allocate(bytes.length)));
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		assertEquals(expected, decode(charset, direct, CharBuffer.allocate(bytes.length)));
+		assertEquals(expected, decode(charset, ByteBuffer.wrap(bytes).asReadOnlyBuffer(),
+				ByteBuffer.allocateDirect(2 * bytes.length).asCharBuffer()));
+		ByteBuffer sliced = ByteBuffer.allocate(bytes.length + 5);
+		sliced.position(5);
+		sliced = sliced.slice();
+		sliced.put(bytes).flip();
+		assertEquals(expected, decode(charset, sliced, CharBuffer.allocate(bytes.length)));
+		StringBuffer small = new StringBuffer();
+		CharsetDecoder decoder = charset.newDecoder();
+		ByteBuffer in = ByteBuffer.wrap(bytes);
+		CharBuffer out = CharBuffer.allocate(3);
+		while (true) {
+			CoderResult result = decoder.decode(in, out, true);
+			out.flip();
+			small.append(out);
+			out.clear();
+			if (result.isError())
+				in.position(in.position() + result.length());
+			else if (result.isUnderflow())
+				break;
+		}
+		assertEquals(expected, small.toString());
+	}
+
+	private String decode(Charset charset, ByteBuffer in, CharBuffer out) {
+		CharsetDecoder decoder = charset.newDecoder();
+		StringBuffer sb = new StringBuffer();
+		while (true) {
+			CoderResult result = decoder.decode(in, out, true);
+			if (result.isError())
+				in.position(in.position() + result.length());
+			else if (result.isUnderflow())
+				break;
+		}
+		out.flip();
+		sb.append(out);
+		return sb.toString();
+	}
+
+	private String decodeSingly(Charset charset, byte[] bytes) {
+		CharsetDecoder decoder = charset.newDecoder();
+		StringBuffer sb = new StringBuffer();
+		CharBuffer out = CharBuffer.allocate(1);
+		for (int i = 0; i < bytes.length; i++) {
+			ByteBuffer in = ByteBuffer.wrap(bytes, i, 1);
+			while (true) {
+				CoderResult result = decoder.decode(in, out, i == bytes.length - 1);
+				out.flip();
+				sb.append(out);
+				out.clear();
+				if (result.isError())
+					in.position(in.position() + result.length());
+				else if (result.isUnderflow())
+					break;
+			}
+		}
+		return sb.toString();
+	}
+}
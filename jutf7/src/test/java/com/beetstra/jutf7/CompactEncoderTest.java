@@ -0,0 +1,142 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class CompactEncoderTest extends TestCase {
+	private static final String CHARS = "\u65E5\u672C -1a.+\u00E9!";
+	private UTF7Charset[] charsets;
+	private Random random;
+
+	protected void setUp() throws Exception {
+		charsets = new UTF7Charset[] { UTF7Charsets.UTF_7, UTF7Charsets.X_UTF_7_OPTIONAL };
+		random = new Random(41);
+	}
+
+	public void testExamples() throws Exception {
+		assertEquals("+ZeUALWcs-", compact(UTF7Charsets.UTF_7, "\u65E5-\u672C"));
+		assertEquals("+ZeUAMWcs-", compact(UTF7Charsets.UTF_7, "\u65E51\u672C"));
+		assertEquals("+ZeU ab +Zyw-", compact(UTF7Charsets.UTF_7, "\u65E5 ab \u672C"));
+		assertEquals("a+ZeU-b", compact(UTF7Charsets.UTF_7, "a\u65E5b"));
+		assertEquals("Hi Mom -+JjoALQAh-", compact(UTF7Charsets.UTF_7, "Hi Mom -\u263A-!"));
+		assertEquals("", compact(UTF7Charsets.UTF_7, ""));
+	}
+
+	public void testDecodes() throws Exception {
+		for (int c = 0; c < charsets.length; c++) {
+			for (int i = 0; i < 2000; i++) {
+				String s = CharsetTestUtil.randomString(random, CHARS, 40);
+				String encoded = compact(charsets[c], s);
+				assertEquals(encoded, s, new String(encoded.getBytes("US-ASCII"), charsets[c]
+						.name()));
+				assertTrue(encoded, encoded.length() <= s.getBytes(charsets[c].name()).length);
+			}
+		}
+	}
+
+	public void testShortest() throws Exception {
+		for (int c = 0; c < charsets.length; c++) {
+			for (int i = 0; i < 500; i++) {
+				String s = CharsetTestUtil.randomString(random, CHARS, 12);
+				assertEquals(s, s.getBytes(charsets[c].name()).length, length(charsets[c], s, 0));
+				int shortest = Integer.MAX_VALUE;
+				for (int stays = 0; stays < 1 << s.length(); stays++)
+					shortest = Math.min(shortest, length(charsets[c], s, stays));
+				assertEquals(s, shortest, compact(charsets[c], s).length());
+			}
+		}
+	}
+
+	public void testChunked() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			String s = CharsetTestUtil.randomString(random, CHARS, 40);
+			CharsetEncoder encoder = UTF7Charsets.UTF_7.newCompactEncoder();
+			ByteBuffer out = ByteBuffer.allocate(5 * s.length() + 2);
+			CharBuffer in = CharBuffer.allocate(3);
+			for (int j = 0; j < s.length(); j++) {
+				in.put(s.charAt(j));
+				in.flip();
+				assertEquals(CoderResult.UNDERFLOW, encoder.encode(in, out, false));
+				in.compact();
+			}
+			in.flip();
+			encoder.encode(in, out, true);
+			encoder.flush(out);
+			out.flip();
+			assertEquals(s, UTF7Charsets.UTF_7.decode(out).toString());
+		}
+	}
+
+	/**
+	 * Computes the length of an encoding, staying in base 64 at the directly encodable 
+	 * characters whose bit is set in <code>stays</code>, and leaving it at the '+' 
+	 * characters whose bit is set.
+	 */
+	private static int length(UTF7Charset cs, String s, int stays) {
+		int length = 0;
+		boolean base64mode = false;
+		int bits = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (cs.canEncodeDirectly(ch) && (!base64mode || (stays & (1 << i)) == 0)) {
+				if (base64mode) {
+					if (bits != 0)
+						length++;
+					if (Character.isLetterOrDigit(ch) || ch == '+' || ch == '/' || ch == '-')
+						length++;
+					base64mode = false;
+					bits = 0;
+				}
+				length++;
+			} else if (ch == '+' && (!base64mode || (stays & (1 << i)) != 0)) {
+				if (base64mode)
+					length += bits != 0 ? 2 : 1;
+				base64mode = false;
+				bits = 0;
+				length += 2;
+			} else {
+				if (!base64mode)
+					length++;
+				base64mode = true;
+				bits += 16;
+				length += bits / 6;
+				bits %= 6;
+			}
+		}
+		if (base64mode)
+			length += bits != 0 ? 2 : 1;
+		return length;
+	}
+
+	private static String compact(UTF7Charset cs, String s) throws Exception {
+		ByteBuffer encoded = cs.newCompactEncoder().encode(CharBuffer.wrap(s));
+		return new String(encoded.array(), 0, encoded.limit(), "US-ASCII");
+	}
+}
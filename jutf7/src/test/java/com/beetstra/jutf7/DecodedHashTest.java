@@ -0,0 +1,97 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class DecodedHashTest extends TestCase {
+	private static final String CHARS = "aAz~&+-/. \r!\u00E9\u00FC\u0100\u65E5\u672C\uD800\uDC00\uFFFD\uFFFF";
+	private Random random;
+
+	protected void setUp() throws Exception {
+		random = new Random(37);
+	}
+
+	public void testHash() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 2000; i++) {
+				String s = CharsetTestUtil.randomString(random, CHARS, 10);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				assertEquals(s, s.hashCode(), CharsetTestUtil.CHARSETS[c].hashDecoded(encoded));
+			}
+		}
+	}
+
+	public void testEquals() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 2000; i++) {
+				String s = CharsetTestUtil.randomString(random, CHARS, 10);
+				String other = random.nextInt(3) == 0 ? s : CharsetTestUtil.randomString(random,
+						CHARS, 10);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				assertEquals(s + " / " + other, s.equals(other), CharsetTestUtil.CHARSETS[c]
+						.equalsDecoded(encoded, other));
+				assertTrue(CharsetTestUtil.CHARSETS[c].equalsDecoded(encoded,
+						new StringBuffer(s)));
+			}
+		}
+	}
+
+	public void testPrefix() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		byte[] encoded = "\u65E5\u672C\u8A9E".getBytes("X-MODIFIED-UTF-7");
+		assertTrue(cs.equalsDecoded(encoded, "\u65E5\u672C\u8A9E"));
+		assertFalse(cs.equalsDecoded(encoded, "\u65E5\u672C"));
+		assertFalse(cs.equalsDecoded(encoded, "\u65E5\u672C\u8A9Ex"));
+		assertFalse(cs.equalsDecoded(encoded, ""));
+		assertTrue(cs.equalsDecoded(new byte[0], ""));
+		assertEquals(0, cs.hashDecoded(new byte[0]));
+	}
+
+	public void testMalformed() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 2000; i++) {
+				byte[] bytes = CharsetTestUtil.randomBytes(random);
+				String decoded = CharsetTestUtil.decode(CharsetTestUtil.CHARSETS[c], bytes);
+				assertEquals(decoded.hashCode(), CharsetTestUtil.CHARSETS[c].hashDecoded(bytes));
+				assertTrue(CharsetTestUtil.CHARSETS[c].equalsDecoded(bytes, decoded));
+			}
+		}
+	}
+
+	public void testOffsets() throws Exception {
+		byte[] bytes = "xx&ZeVnLIqe-yy".getBytes("US-ASCII");
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		assertEquals("\u65E5\u672C\u8A9E".hashCode(), cs.hashDecoded(bytes, 2, 10));
+		assertTrue(cs.equalsDecoded(bytes, 2, 10, "\u65E5\u672C\u8A9E"));
+		assertTrue(cs.equalsDecoded(bytes, 0, 12, "xx\u65E5\u672C\u8A9E"));
+		assertFalse(cs.equalsDecoded(bytes, 2, 9, "\u65E5\u672C\u8A9E"));
+		try {
+			cs.hashDecoded(bytes, 5, 10);
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.charset.Charset;
+import junit.framework.TestCase;
+
+public class DecodedNamesTest extends TestCase {
+	private static final String[] NAMES = new String[] { "INBOX", "", "Entw\u00FCrfe",
+			"\u65E5\u672C\u8A9E/\u53D7\u4FE1", "a&b", "Sent Items", "~peter/mail/\u53F0\u5317/\u65E5\u672C\u8A9E" };
+	private ModifiedUTF7Charset tested;
+
+	protected void setUp() throws Exception {
+		tested = UTF7Charsets.X_MODIFIED_UTF_7;
+	}
+
+	public void testDecodeBuffer() throws Exception {
+		byte[][] encoded = encode(NAMES);
+		int total = 3;
+		for (int i = 0; i < encoded.length; i++)
+			total += encoded[i].length;
+		byte[] bytes = new byte[total];
+		int[] offsets = new int[encoded.length + 1];
+		offsets[0] = 3;
+		for (int i = 0; i < encoded.length; i++) {
+			System.arraycopy(encoded[i], 0, bytes, offsets[i], encoded[i].length);
+			offsets[i + 1] = offsets[i] + encoded[i].length;
+		}
+		assertDecoded(NAMES, tested.decodeNames(bytes, offsets));
+	}
+
+	public void testDecodeArrays() throws Exception {
+		assertDecoded(NAMES, tested.decodeNames(encode(NAMES)));
+		assertEquals(0, tested.decodeNames(new byte[0][]).size());
+	}
+
+	public void testSharedArray() throws Exception {
+		DecodedNames names = tested.decodeNames(encode(new String[] { "abc", "d", "\u65E5\u672C" }));
+		assertEquals("abcd\u65E5\u672C", new String(names.getChars(), 0, names.end(2)));
+		assertEquals(3, names.start(1));
+		assertEquals(4, names.end(1));
+		assertEquals(1, names.length(1));
+		assertEquals("\u65E5\u672C", names.charSequence(2).toString());
+	}
+
+	public void testLongDirectPrefix() throws Exception {
+		String prefix = "Archive/2024/Quarterly reports/";
+		String[] strings = new String[] { prefix + "\u65E5\u672C", prefix, prefix + "&",
+				prefix + "\u00E9 " + prefix };
+		byte[] bytes = (prefix + "&ZeVnLA-" + prefix + prefix + "&-" + prefix + "&AOk- "
+				+ prefix).getBytes("US-ASCII");
+		int[] offsets = new int[] { 0, prefix.length() + 8, 2 * prefix.length() + 8,
+				3 * prefix.length() + 10, bytes.length };
+		assertDecoded(strings, tested.decodeNames(bytes, offsets));
+		DecodedNames names = tested.decodeNames(new byte[][] { (prefix + "&Jjo")
+				.getBytes("US-ASCII") });
+		assertTrue(names.isMalformed(0));
+		assertEquals(prefix + "\u263A\uFFFD", names.get(0));
+	}
+
+	public void testMalformed() throws Exception {
+		DecodedNames names = tested.decodeNames(new byte[][] { "a&Jjo!".getBytes("US-ASCII"),
+				"ok".getBytes("US-ASCII"), "&AGE".getBytes("US-ASCII"),
+				"&AGE-&AGE-".getBytes("US-ASCII"), "\u00E9".getBytes("ISO-8859-1") });
+		assertTrue(names.isMalformed(0));
+		assertFalse(names.isMalformed(1));
+		assertEquals("ok", names.get(1));
+		assertTrue(names.isMalformed(2));
+		assertEquals("a\uFFFD", names.get(2));
+		assertTrue(names.isMalformed(3));
+		assertEquals(Charset.forName("X-MODIFIED-UTF-7").decode(java.nio.ByteBuffer
+				.wrap("\u00E9".getBytes("ISO-8859-1"))).toString(), names.get(4));
+	}
+
+	public void testInvalidOffsets() throws Exception {
+		byte[] bytes = "abc".getBytes("US-ASCII");
+		assertInvalid(bytes, new int[0]);
+		assertInvalid(bytes, new int[] { 0, 2, 1 });
+		assertInvalid(bytes, new int[] { 0, 4 });
+		assertInvalid(bytes, new int[] { -1, 2 });
+	}
+
+	public void testIndexChecked() throws Exception {
+		DecodedNames names = tested.decodeNames(encode(new String[] { "a" }));
+		try {
+			names.get(1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	private void assertInvalid(byte[] bytes, int[] offsets) {
+		try {
+			tested.decodeNames(bytes, offsets);
+			fail("accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private void assertDecoded(String[] expected, DecodedNames names) {
+		assertEquals(expected.length, names.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], names.get(i));
+			assertEquals(expected[i].length(), names.length(i));
+			assertFalse(names.isMalformed(i));
+		}
+	}
+
+	private byte[][] encode(String[] strings) throws Exception {
+		byte[][] encoded = new byte[strings.length][];
+		for (int i = 0; i < strings.length; i++)
+			encoded[i] = CharsetTestUtil.asString(tested.encode(strings[i])).getBytes("US-ASCII");
+		return encoded;
+	}
+}
@@ -0,0 +1,133 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class DecodedSearchTest extends TestCase {
+	private static final String CHARS = "aAbz~&+-/. !\u00E9\u0100\u65E5\u672C\uD800\uDC00\uFFFD\uFFFF";
+	private Random random;
+
+	protected void setUp() throws Exception {
+		random = new Random(38);
+	}
+
+	public void testContains() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 3000; i++) {
+				String s = CharsetTestUtil.randomString(random, CHARS, 12);
+				String needle = needle(s);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				assertEquals(s + " / " + needle, s.indexOf(needle) >= 0,
+						CharsetTestUtil.CHARSETS[c].containsDecoded(encoded, needle));
+			}
+		}
+	}
+
+	public void testStartsWith() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 3000; i++) {
+				String s = CharsetTestUtil.randomString(random, CHARS, 12);
+				String prefix = random.nextBoolean() ? s.substring(0, random.nextInt(s.length() + 1))
+						: CharsetTestUtil.randomString(random, CHARS, 3);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				assertEquals(s + " / " + prefix, s.startsWith(prefix), CharsetTestUtil.CHARSETS[c]
+						.startsWithDecoded(encoded, prefix));
+			}
+		}
+	}
+
+	public void testDirect() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		byte[] encoded = "INBOX/Archive/2006".getBytes("US-ASCII");
+		assertTrue(cs.containsDecoded(encoded, "Archive"));
+		assertTrue(cs.containsDecoded(encoded, "2006"));
+		assertTrue(cs.containsDecoded(encoded, ""));
+		assertFalse(cs.containsDecoded(encoded, "archive"));
+		assertFalse(cs.containsDecoded(encoded, "20067"));
+		assertTrue(cs.startsWithDecoded(encoded, "INBOX/"));
+		assertFalse(cs.startsWithDecoded(encoded, "INBOX/Archive/20066"));
+		byte[] high = new byte[] { 'a', (byte) 0xE9, 'b' };
+		assertTrue(cs.containsDecoded(high, "\uFFE9b"));
+		assertFalse(cs.containsDecoded(high, "\u00E9b"));
+	}
+
+	public void testEncoded() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		byte[] encoded = "~peter/mail/&U,BTFw-/&ZeVnLIqe-".getBytes("US-ASCII");
+		assertTrue(cs.containsDecoded(encoded, "\u53F0\u5317"));
+		assertTrue(cs.containsDecoded(encoded, "\u5317/\u65E5"));
+		assertTrue(cs.containsDecoded(encoded, "\u8A9E"));
+		assertFalse(cs.containsDecoded(encoded, "&"));
+		assertFalse(cs.containsDecoded(encoded, "U,BTFw"));
+		assertTrue(cs.startsWithDecoded(encoded, "~peter/mail/\u53F0"));
+		assertTrue(cs.containsDecoded(encoded, 12, 9, "\u53F0\u5317/"));
+		assertFalse(cs.containsDecoded(encoded, 12, 8, "\u53F0\u5317/"));
+		assertFalse(cs.containsDecoded(encoded, 12, 6, "\u53F0\u5317"));
+		assertTrue(cs.startsWithDecoded(encoded, 21, 10, "\u65E5\u672C\u8A9E"));
+	}
+
+	public void testOverlapping() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		byte[] encoded = "aabaabaaab/\u65E5\u65E5\u65E5\u672C".getBytes(cs.name());
+		assertTrue(cs.containsDecoded(encoded, "aabaaab"));
+		assertTrue(cs.containsDecoded(encoded, "aaab/"));
+		assertFalse(cs.containsDecoded(encoded, "aabaabaab"));
+		assertTrue(cs.containsDecoded(encoded, "\u65E5\u65E5\u65E5\u672C"));
+		assertTrue(cs.containsDecoded(encoded, "b/\u65E5\u65E5"));
+		assertFalse(cs.containsDecoded(encoded, "\u65E5\u65E5\u65E5\u65E5"));
+	}
+
+	public void testMixed() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		byte[] encoded = "&ZeVnLIqe-/Archive &- Sent/&ZeVnLIqe-/Drafts".getBytes("US-ASCII");
+		assertTrue(cs.containsDecoded(encoded, "Archive & Sent"));
+		assertTrue(cs.containsDecoded(encoded, "Drafts"));
+		assertTrue(cs.containsDecoded(encoded, "/Drafts"));
+		assertFalse(cs.containsDecoded(encoded, "ZeVnLIqe"));
+		assertFalse(cs.containsDecoded(encoded, "Sent/Drafts"));
+	}
+
+	public void testMalformed() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 3000; i++) {
+				byte[] bytes = CharsetTestUtil.randomBytes(random);
+				String decoded = CharsetTestUtil.decode(CharsetTestUtil.CHARSETS[c], bytes);
+				String needle = needle(decoded);
+				assertEquals(decoded.indexOf(needle) >= 0, CharsetTestUtil.CHARSETS[c]
+						.containsDecoded(bytes, needle));
+				assertTrue(CharsetTestUtil.CHARSETS[c].startsWithDecoded(bytes, decoded));
+			}
+		}
+	}
+
+	private String needle(String s) {
+		if (random.nextBoolean() && s.length() > 0) {
+			int start = random.nextInt(s.length());
+			return s.substring(start, start + random.nextInt(s.length() - start) + 1);
+		}
+		return CharsetTestUtil.randomString(random, CHARS, 3);
+	}
+}
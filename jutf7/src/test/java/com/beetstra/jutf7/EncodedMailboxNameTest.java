@@ -0,0 +1,126 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.HashSet;
+import java.util.Set;
+import junit.framework.TestCase;
+
+public class EncodedMailboxNameTest extends TestCase {
+	public void testAscii() throws Exception {
+		EncodedMailboxName name = EncodedMailboxName.fromEncoded(bytes("INBOX.Sent"));
+		assertTrue(name.isAscii());
+		assertEquals("INBOX.Sent", name.toString());
+		assertSame(name.toString(), name.toString());
+		assertEquals(10, name.encodedLength());
+	}
+
+	public void testDecodesOnDemand() throws Exception {
+		EncodedMailboxName name = EncodedMailboxName.fromEncoded(bytes("&ZeVnLIqe-/&U,BTFw-"));
+		assertFalse(name.isAscii());
+		assertEquals("\u65E5\u672C\u8A9E/\u53F0\u5317", name.toString());
+		assertSame(name.toString(), name.toString());
+		assertFalse(EncodedMailboxName.fromEncoded(bytes("a&-b")).isAscii());
+		assertEquals("a&b", EncodedMailboxName.fromEncoded(bytes("a&-b")).toString());
+	}
+
+	public void testMalformed() throws Exception {
+		assertEquals("abca\uFFFD", EncodedMailboxName.fromEncoded(bytes("abc&AGE")).toString());
+		String[] inputs = new String[] { "abc&AGE", "&", "x&AGEA-y", "&ImI-&ImI-", "a&.-b",
+				"&ZeVnLIqe" };
+		for (int i = 0; i < inputs.length; i++)
+			assertEquals(inputs[i], decodeReplacing(inputs[i]), EncodedMailboxName.fromEncoded(
+					bytes(inputs[i])).toString());
+	}
+
+	public void testFromString() throws Exception {
+		EncodedMailboxName name = EncodedMailboxName.fromString("Entw\u00FCrfe");
+		assertEquals("Entw&APw-rfe", new String(name.getEncoded(), "US-ASCII"));
+		assertEquals("Entw\u00FCrfe", name.toString());
+		assertEquals(EncodedMailboxName.fromEncoded(bytes("Entw&APw-rfe")), name);
+	}
+
+	public void testFromRange() throws Exception {
+		EncodedMailboxName name = EncodedMailboxName.fromEncoded(bytes("* LIST Drafts"), 7, 6);
+		assertEquals("Drafts", name.toString());
+		try {
+			EncodedMailboxName.fromEncoded(bytes("abc"), 2, 2);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		try {
+			EncodedMailboxName.fromEncoded(bytes("abc"), 2, Integer.MAX_VALUE);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	public void testEqualsHashCode() throws Exception {
+		Set set = new HashSet();
+		set.add(EncodedMailboxName.fromEncoded(bytes("&ZeVnLIqe-")));
+		set.add(EncodedMailboxName.fromString("INBOX"));
+		assertTrue(set.contains(EncodedMailboxName.fromString("\u65E5\u672C\u8A9E")));
+		assertTrue(set.contains(EncodedMailboxName.fromEncoded(bytes("INBOX"))));
+		assertFalse(set.contains(EncodedMailboxName.fromEncoded(bytes("inbox"))));
+		assertFalse(EncodedMailboxName.fromString("INBOX").equals("INBOX"));
+	}
+
+	public void testImmutable() throws Exception {
+		byte[] bytes = bytes("INBOX");
+		EncodedMailboxName name = EncodedMailboxName.fromEncoded(bytes);
+		bytes[0] = 'X';
+		name.getEncoded()[1] = 'X';
+		assertEquals("INBOX", name.toString());
+	}
+
+	/**
+	 * Decodes as the decoder does with malformed input replaced, including at the flush.
+	 */
+	private static String decodeReplacing(String input) throws Exception {
+		CharsetDecoder decoder = UTF7Charsets.X_MODIFIED_UTF_7.newDecoder();
+		ByteBuffer in = ByteBuffer.wrap(bytes(input));
+		CharBuffer out = CharBuffer.allocate(2 * input.length());
+		while (true) {
+			CoderResult result = decoder.decode(in, out, true);
+			if (result.isUnderflow())
+				break;
+			out.put('\uFFFD');
+			in.position(in.position() + result.length());
+		}
+		if (decoder.flush(out).isError())
+			out.put('\uFFFD');
+		out.flip();
+		return out.toString();
+	}
+
+	private static byte[] bytes(String string) throws Exception {
+		return string.getBytes("US-ASCII");
+	}
+}
@@ -0,0 +1,167 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class EncodedNameComparatorTest extends TestCase {
+	private static final String CHARS = "aAz~&-/. +\u00E9\u00FC\u0100\u65E5\u672C\uD800\uDC00\uFFFD\uFFFF";
+	private ModifiedUTF7Charset charset;
+	private EncodedNameComparator tested;
+	private Random random;
+
+	protected void setUp() throws Exception {
+		charset = UTF7Charsets.X_MODIFIED_UTF_7;
+		tested = charset.nameComparator();
+		random = new Random(36);
+	}
+
+	public void testUnitsModified() throws Exception {
+		for (int i = 0; i < 5000; i++) {
+			byte[] bytes = CharsetTestUtil.randomBytes(random);
+			assertEquals(new String(bytes, "ISO-8859-1"), charset.decodeNames(new byte[][] { bytes })
+					.get(0), units(charset, bytes));
+		}
+	}
+
+	public void testUnitsUTF7() throws Exception {
+		UTF7StyleCharset utf7 = (UTF7StyleCharset) UTF7Charsets.UTF_7;
+		for (int i = 0; i < 5000; i++) {
+			byte[] bytes = CharsetTestUtil.randomBytes(random);
+			assertEquals(new String(bytes, "ISO-8859-1"), CharsetTestUtil.decode(utf7, bytes),
+					units(utf7, bytes));
+		}
+	}
+
+	public void testOrder() throws Exception {
+		for (int i = 0; i < 5000; i++) {
+			String a = CharsetTestUtil.randomString(random, CHARS, 8);
+			String b = random.nextInt(4) == 0 ? a : CharsetTestUtil.randomString(random, CHARS, 8);
+			assertEquals(a + " / " + b, Integer.signum(a.compareTo(b)), Integer.signum(tested
+					.compare(encode(a), encode(b))));
+		}
+	}
+
+	public void testSort() throws Exception {
+		String[] names = new String[1000];
+		byte[][] encoded = new byte[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = CharsetTestUtil.randomString(random, CHARS, 8);
+			encoded[i] = encode(names[i]);
+		}
+		Arrays.sort(names);
+		Arrays.sort(encoded, tested);
+		for (int i = 0; i < names.length; i++)
+			assertEquals(names[i], new String(encoded[i], "X-MODIFIED-UTF-7"));
+	}
+
+	public void testSurrogateOrder() throws Exception {
+		// UTF-16 order puts supplementary characters before U+E000 to U+FFFF
+		assertTrue(tested.compare(encode("\uD800\uDC00"), encode("\uFFFD")) < 0);
+		assertTrue(tested.compare(encode("\uE000"), encode("\uDBFF\uDFFF")) > 0);
+	}
+
+	public void testPrefix() throws Exception {
+		assertEquals(0, tested.compare(encode(""), encode("")));
+		assertTrue(tested.compare(encode("Sent"), encode("Sent Items")) < 0);
+		assertTrue(tested.compare(encode("\u65E5\u672C"), encode("\u65E5")) > 0);
+		assertTrue(tested.compare(encode("a&b"), encode("a")) > 0);
+		assertTrue(tested.compare(encode("a&b"), encode("a&")) > 0);
+	}
+
+	public void testMalformed() throws Exception {
+		assertTrue(tested.compare(ascii("&AGE"), ascii("a")) > 0);
+		assertTrue(tested.compare(ascii("&AGE"), encode("a\uFFFE")) < 0);
+		assertEquals(0, tested.compare(ascii("a&Jjo!"), ascii("a&Jjo!")));
+		assertTrue(tested.compare(ascii("&Jjo!"), encode("\u263A")) > 0);
+		assertTrue(tested.compare(ascii("&Jjo!"), encode("\u263A\uFFFE")) < 0);
+	}
+
+	public void testOffsets() throws Exception {
+		byte[] a = ascii("xxab&ZeVnLIqe-yy");
+		byte[] b = ascii("ab&ZeVnLIqe-");
+		assertEquals(0, tested.compare(a, 2, 12, b, 0, 12));
+		assertTrue(tested.compare(a, 2, 11, b, 0, 12) > 0);
+		assertTrue(tested.compare(a, 2, 2, b, 0, 12) < 0);
+		try {
+			tested.compare(a, 10, 10, b, 0, 1);
+			fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	public void testBuffers() throws Exception {
+		for (int i = 0; i < 500; i++) {
+			String a = CharsetTestUtil.randomString(random, CHARS, 8);
+			String b = CharsetTestUtil.randomString(random, CHARS, 8);
+			int expected = Integer.signum(a.compareTo(b));
+			ByteBuffer heap = slice(ByteBuffer.allocate(100), encode(a));
+			ByteBuffer direct = slice(ByteBuffer.allocateDirect(100), encode(b));
+			int positionA = heap.position();
+			int positionB = direct.position();
+			assertEquals(expected, Integer.signum(tested.compare(heap, direct)));
+			assertEquals(expected, Integer.signum(tested.compare(heap.asReadOnlyBuffer(),
+					direct.slice())));
+			assertEquals(positionA, heap.position());
+			assertEquals(positionB, direct.position());
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, byte[] bytes) {
+		buffer.position(7);
+		ByteBuffer slice = buffer.slice();
+		slice.position(3);
+		slice.put(bytes);
+		slice.put((byte) '?');
+		slice.flip();
+		slice.position(3);
+		slice.limit(slice.limit() - 1);
+		return slice;
+	}
+
+	private String units(UTF7StyleCharset cs, byte[] bytes) {
+		EncodedText text = new EncodedText(cs);
+		StringBuffer sb = new StringBuffer();
+		long state = EncodedText.start(0);
+		while (true) {
+			state = text.next(bytes, null, bytes.length, state);
+			if (!EncodedText.hasUnit(state))
+				break;
+			sb.append(EncodedText.unit(state));
+		}
+		assertEquals(bytes.length, EncodedText.position(state));
+		return sb.toString();
+	}
+
+	private static byte[] encode(String s) throws Exception {
+		return s.getBytes("X-MODIFIED-UTF-7");
+	}
+
+	private static byte[] ascii(String s) throws Exception {
+		return s.getBytes("ISO-8859-1");
+	}
+}
@@ -0,0 +1,96 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import junit.framework.TestCase;
+
+/**
+ * Checks which classes the provider loads, using a fresh class loader.
+ */
+public class LazyInitTest extends TestCase {
+	private TrackingLoader loader;
+	private Object provider;
+	private Method charsetForName;
+
+	protected void setUp() throws Exception {
+		URL location = CharsetProvider.class.getProtectionDomain().getCodeSource().getLocation();
+		loader = new TrackingLoader(location);
+		Class providerClass = loader.loadClass(CharsetProvider.class.getName());
+		provider = providerClass.newInstance();
+		charsetForName = providerClass.getMethod("charsetForName", new Class[] { String.class });
+	}
+
+	public void testMissLoadsNoCharsets() throws Exception {
+		assertNull(lookup("X-DOES-NOT-EXIST"));
+		assertNull(lookup("UTF-8"));
+		assertNull(lookup("windows-1252"));
+		assertNotLoaded(UTF7StyleCharset.class);
+		assertNotLoaded(Base64Util.class);
+		assertNotLoaded(UTF7Charsets.class);
+		assertNotLoaded(CharsetProvider.UTF7Holder.class);
+		assertNotLoaded(CharsetProvider.UTF7OptionalHolder.class);
+		assertNotLoaded(CharsetProvider.ModifiedUTF7Holder.class);
+	}
+
+	public void testHitLoadsOneCharset() throws Exception {
+		assertNotNull(lookup("x-imap4-modified-utf7"));
+		assertNotNull(loader.loaded(ModifiedUTF7Charset.class.getName()));
+		assertNotLoaded(UTF7Charset.class);
+		assertSame(lookup("X-MODIFIED-UTF-7"), lookup("X-RFC-3501"));
+	}
+
+	public void testIterationLoadsOnDemand() throws Exception {
+		Method charsets = provider.getClass().getMethod("charsets", new Class[0]);
+		Iterator iterator = (Iterator) charsets.invoke(provider, new Object[0]);
+		assertTrue(iterator.hasNext());
+		assertNotLoaded(CharsetProvider.UTF7Holder.class);
+		assertEquals("UTF-7", ((Charset) iterator.next()).name());
+		assertNotLoaded(CharsetProvider.UTF7OptionalHolder.class);
+		assertNotLoaded(CharsetProvider.ModifiedUTF7Holder.class);
+		assertNotLoaded(ModifiedUTF7Charset.class);
+	}
+
+	private Object lookup(String name) throws Exception {
+		return charsetForName.invoke(provider, new Object[] { name });
+	}
+
+	private void assertNotLoaded(Class clazz) {
+		assertNull(clazz.getName(), loader.loaded(clazz.getName()));
+	}
+
+	private static class TrackingLoader extends URLClassLoader {
+		TrackingLoader(URL location) {
+			super(new URL[] { location }, null);
+		}
+
+		Class loaded(String name) {
+			return findLoadedClass(name);
+		}
+	}
+}
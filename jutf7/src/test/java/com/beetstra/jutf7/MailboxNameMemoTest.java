@@ -0,0 +1,101 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class MailboxNameMemoTest extends TestCase {
+	private MailboxNameMemo memo;
+
+	protected void setUp() throws Exception {
+		memo = UTF7Charsets.X_MODIFIED_UTF_7.newNameMemo(16);
+	}
+
+	public void testEncodeName() throws Exception {
+		String name = "Entw\u00FCrfe/\u65E5\u672C\u8A9E";
+		EncodedMailboxName encoded = memo.encodeName(name);
+		assertEquals(name, encoded.toString());
+		assertTrue(Arrays.equals(EncodedMailboxName.fromString(name).getEncoded(), encoded
+				.getEncoded()));
+		assertSame(encoded, memo.encodeName(name));
+		assertSame(encoded, memo.encodeName(new String(name)));
+		assertEquals(1, memo.misses());
+		assertEquals(1, memo.identityHits());
+		assertEquals(1, memo.equalityHits());
+	}
+
+	public void testEncode() throws Exception {
+		ByteBuffer first = memo.encode("Entw\u00FCrfe");
+		ByteBuffer second = memo.encode("Entw\u00FCrfe");
+		assertTrue(first.isReadOnly());
+		assertEquals(ByteBuffer.wrap("Entw&APw-rfe".getBytes("US-ASCII")), first);
+		first.get();
+		assertEquals(0, second.position());
+		assertEquals(1, memo.misses());
+	}
+
+	public void testCapacity() throws Exception {
+		assertEquals(16, memo.slots());
+		assertEquals(32, UTF7Charsets.X_MODIFIED_UTF_7.newNameMemo(17).slots());
+		assertEquals(1, UTF7Charsets.X_MODIFIED_UTF_7.newNameMemo(1).slots());
+		try {
+			UTF7Charsets.X_MODIFIED_UTF_7.newNameMemo(0);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testEvictions() throws Exception {
+		String[] names = new String[100];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "Folder " + i;
+			assertEquals(names[i], memo.encodeName(names[i]).toString());
+		}
+		assertEquals(100, memo.misses());
+		assertTrue(memo.evictions() >= 100 - memo.slots());
+		for (int i = 0; i < names.length; i++)
+			assertEquals(names[i], memo.encodeName(names[i]).toString());
+		assertEquals(200, memo.misses() + memo.identityHits());
+	}
+
+	public void testWeakKeys() throws Exception {
+		String name = new String("Short-lived");
+		EncodedMailboxName encoded = memo.encodeName(name);
+		WeakReference<String> reference = new WeakReference<String>(name);
+		name = null;
+		for (int i = 0; i < 100 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+		assertEquals("Short-lived", encoded.toString());
+		assertNotSame(encoded, memo.encodeName("Short-lived"));
+		assertEquals(2, memo.misses());
+		assertEquals(0, memo.evictions());
+	}
+}
@@ -0,0 +1,159 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.MalformedInputException;
+import junit.framework.TestCase;
+
+public class MailboxNameTokenizerTest extends TestCase {
+	private MailboxNameTokenizer tested;
+
+	protected void setUp() throws Exception {
+		tested = UTF7Charsets.X_MODIFIED_UTF_7.newNameTokenizer();
+	}
+
+	public void testAtom() throws Exception {
+		assertRead("\u65E5\u672C\u8A9E", "&ZeVnLIqe- rest", 10);
+		assertRead("INBOX", "INBOX\r\n", 5);
+		assertRead("a]b", "a]b)", 3);
+		assertRead("Sent", "Sent{", 4);
+	}
+
+	public void testQuoted() throws Exception {
+		assertRead("Sent Items", "\"Sent Items\" ", 12);
+		assertRead("a\"b\\c \u65E5\u672C\u8A9E", "\"a\\\"b\\\\c &ZeVnLIqe-\"\r\n", 20);
+		assertRead("", "\"\"", 2);
+		assertRead("&", "\"&-\"", 4);
+	}
+
+	public void testLiteral() throws Exception {
+		assertRead("\u65E5\u672C\u8A9E", "{10}\r\n&ZeVnLIqe-\r\n", 16);
+		assertRead("", "{0}\r\n)", 5);
+		assertRead("a\"b\\", "{4}\r\na\"b\\ ", 9);
+	}
+
+	public void testLargeLiteral() throws Exception {
+		StringBuffer name = new StringBuffer();
+		for (int i = 0; i < 100; i++)
+			name.append("\u65E5\u672C\u8A9E/");
+		byte[] encoded = name.toString().getBytes("X-MODIFIED-UTF-7");
+		String response = "{" + encoded.length + "}\r\n" + new String(encoded, "US-ASCII");
+		assertRead(name.toString(), response, response.length());
+	}
+
+	public void testSplit() throws Exception {
+		String[] responses = new String[] { "&ZeVnLIqe-/x ", "\"a\\\"b &ZeVnLIqe-\\\\\" ",
+				"{12}\r\n&ZeVnLIqe-/x " };
+		String[] names = new String[] { "\u65E5\u672C\u8A9E/x", "a\"b \u65E5\u672C\u8A9E\\", "\u65E5\u672C\u8A9E/x" };
+		for (int i = 0; i < responses.length; i++) {
+			byte[] bytes = responses[i].getBytes("US-ASCII");
+			for (int split = 0; split < bytes.length - 1; split++) {
+				StringBuilder sb = new StringBuilder();
+				ByteBuffer first = ByteBuffer.wrap(bytes, 0, split);
+				assertFalse(responses[i] + " at " + split, tested.read(first, sb));
+				assertFalse(first.hasRemaining());
+				ByteBuffer second = ByteBuffer.wrap(bytes, split, bytes.length - split).slice();
+				assertTrue(tested.read(second, sb));
+				assertEquals(names[i], sb.toString());
+				assertEquals(bytes.length - 1, split + second.position());
+			}
+			StringBuilder sb = new StringBuilder();
+			int i2 = 0;
+			while (!tested.read(ByteBuffer.wrap(bytes, i2, 1), sb))
+				i2++;
+			assertEquals(names[i], sb.toString());
+		}
+	}
+
+	public void testCharBuffer() throws Exception {
+		char[] chars = new char[10];
+		CharBuffer out = CharBuffer.wrap(chars);
+		ByteBuffer in = ascii("{10}\r\n&ZeVnLIqe- \"x\"");
+		assertTrue(tested.read(in, out));
+		assertEquals(3, out.position());
+		assertEquals("\u65E5\u672C\u8A9E", new String(chars, 0, 3));
+		in.get();
+		assertTrue(tested.read(in, out));
+		assertEquals("\u65E5\u672C\u8A9Ex", new String(chars, 0, 4));
+		try {
+			tested.read(ascii("abcdefghijk "), CharBuffer.allocate(4));
+			fail("expected BufferOverflowException");
+		} catch (BufferOverflowException e) {
+		}
+		tested.reset();
+		assertRead("a", "a ", 1);
+	}
+
+	public void testSequence() throws Exception {
+		ByteBuffer in = ascii("\"/\" {3}\r\na&- &AOk-t&AOk-\r\n");
+		String[] expected = new String[] { "/", "a&", "\u00E9t\u00E9" };
+		for (int i = 0; i < expected.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			assertTrue(tested.read(in, sb));
+			assertEquals(expected[i], sb.toString());
+			in.get();
+		}
+		assertEquals('\n', in.get());
+	}
+
+	public void testMalformedName() throws Exception {
+		assertRead("a\uFFFD", "&AGE ", 4);
+		assertRead("a\uFFFD", "\"&AGE\"", 6);
+		assertRead("a\uFFFD", "{4}\r\n&AGE", 9);
+		assertRead("x", "x ", 1);
+	}
+
+	public void testSyntaxErrors() throws Exception {
+		String[] responses = new String[] { "(", " ", "{x}\r\n", "{}\r\n", "{1}\rx", "{1}x",
+				"\"abc\r\n\"", "\"\\a\"", "{99999999999}\r\n" };
+		for (int i = 0; i < responses.length; i++) {
+			try {
+				tested.read(ascii(responses[i]), new StringBuilder());
+				fail("expected MalformedInputException for " + responses[i]);
+			} catch (MalformedInputException e) {
+			}
+			tested.reset();
+		}
+	}
+
+	private void assertRead(String expected, String response, int position) throws Exception {
+		ByteBuffer in = ascii(response);
+		StringBuilder sb = new StringBuilder();
+		assertTrue(tested.read(in, sb));
+		assertEquals(expected, sb.toString());
+		assertEquals(position, in.position());
+		in.rewind();
+		CharBuffer out = CharBuffer.allocate(response.length());
+		assertTrue(tested.read(in, out));
+		out.flip();
+		assertEquals(expected, out.toString());
+	}
+
+	private static ByteBuffer ascii(String s) throws Exception {
+		return ByteBuffer.wrap(s.getBytes("US-ASCII"));
+	}
+}
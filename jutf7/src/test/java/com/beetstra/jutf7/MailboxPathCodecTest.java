@@ -0,0 +1,210 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class MailboxPathCodecTest extends TestCase {
+	private static final String CHARS = "aZ9 ._&-~\u65E5\u672C\u041F\u0440\u043E\u0435\u043A\u0442\u044B\uD800\uDC00";
+	private static final String PATH = "INBOX/\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2024/\u041E\u0442\u0447\u0451\u0442\u044B";
+	private ModifiedUTF7Charset charset;
+	private MailboxPathCodec tested;
+	private Random random;
+
+	protected void setUp() throws Exception {
+		charset = UTF7Charsets.X_MODIFIED_UTF_7;
+		tested = charset.pathCodec('/');
+		random = new Random(39);
+	}
+
+	public void testEncode() throws Exception {
+		EncodedMailboxName encoded = tested.encode(PATH);
+		assertEquals(EncodedMailboxName.fromString(PATH), encoded);
+		assertEquals(PATH, encoded.toString());
+		assertEquals(4, tested.cachedSegments());
+		assertSame(encoded, tested.encode(PATH));
+		assertEquals(4, tested.cachedSegments());
+	}
+
+	public void testSharedPrefix() throws Exception {
+		tested.encode(PATH);
+		EncodedMailboxName child = tested.encode(PATH + "/\u041C\u0430\u0440\u0442");
+		assertEquals(EncodedMailboxName.fromString(PATH + "/\u041C\u0430\u0440\u0442"), child);
+		assertEquals(5, tested.cachedSegments());
+		tested.encode("INBOX/\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2025");
+		assertEquals(6, tested.cachedSegments());
+		assertEquals("INBOX/\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2025", tested.decode(encode("INBOX/\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2025")));
+		assertEquals(6, tested.cachedSegments());
+	}
+
+	public void testDecode() throws Exception {
+		byte[] encoded = encode(PATH);
+		assertEquals(PATH, tested.decode(encoded));
+		assertEquals(4, tested.cachedSegments());
+		assertEquals(PATH, tested.decode(encoded));
+		byte[] padded = new byte[encoded.length + 4];
+		System.arraycopy(encoded, 0, padded, 2, encoded.length);
+		assertEquals(PATH, tested.decode(padded, 2, encoded.length));
+		assertEquals("INBOX", tested.decode(padded, 2, 5));
+	}
+
+	public void testEmptySegments() throws Exception {
+		String[] paths = new String[] { "", "/", "a//b", "/a/", "&/&" };
+		for (int i = 0; i < paths.length; i++) {
+			assertEquals(EncodedMailboxName.fromString(paths[i]), tested.encode(paths[i]));
+			assertEquals(paths[i], tested.decode(encode(paths[i])));
+		}
+	}
+
+	public void testRandom() throws Exception {
+		MailboxPathCodec dots = charset.pathCodec('.');
+		for (int i = 0; i < 2000; i++) {
+			String path = randomPath('/');
+			assertEquals(EncodedMailboxName.fromString(path), tested.encode(path));
+			assertEquals(path, tested.decode(encode(path)));
+			path = randomPath('.');
+			assertEquals(path, dots.decode(encode(path)));
+			assertEquals(EncodedMailboxName.fromString(path), dots.encode(path));
+		}
+	}
+
+	public void testNotCanonical() throws Exception {
+		assertEquals("a/x", tested.decode(ascii("&AGE-/x")));
+		assertEquals(0, tested.cachedSegments());
+		// the unterminated sequence runs on past the delimiter, as when decoding the whole path
+		byte[] malformed = ascii("x/&AGE/y");
+		assertEquals(charset.decodeNames(new byte[][] { malformed }).get(0), tested
+				.decode(malformed));
+		assertEquals(1, tested.cachedSegments());
+	}
+
+	public void testCapacity() throws Exception {
+		MailboxPathCodec small = charset.pathCodec('/', 2);
+		assertEquals(EncodedMailboxName.fromString(PATH), small.encode(PATH));
+		assertEquals(PATH, small.decode(encode(PATH)));
+		assertEquals(2, small.cachedSegments());
+	}
+
+	public void testEviction() throws Exception {
+		MailboxPathCodec small = charset.pathCodec('/', 4);
+		small.encode("INBOX/Sent");
+		small.encode("Archive/2023");
+		assertEquals(4, small.cachedSegments());
+		EncodedMailboxName name = small.encode("\u65E5\u672C/2024");
+		assertEquals(EncodedMailboxName.fromString("\u65E5\u672C/2024"), name);
+		assertEquals(2, small.cachedSegments());
+		assertSame(name, small.encode("\u65E5\u672C/2024"));
+		assertEquals("INBOX/Drafts", small.decode(encode("INBOX/Drafts")));
+		assertEquals(4, small.cachedSegments());
+		assertEquals("INBOX/Trash", small.decode(encode("INBOX/Trash")));
+		assertEquals(2, small.cachedSegments());
+		assertSame(small.encode("INBOX/Trash"), small.encode("INBOX/Trash"));
+		assertEquals(2, small.cachedSegments());
+	}
+
+	public void testRename() throws Exception {
+		EncodedMailboxName from = tested.encode("INBOX/\u041F\u0440\u043E\u0435\u043A\u0442\u044B");
+		EncodedMailboxName to = tested.encode("\u0410\u0440\u0445\u0438\u0432/\u041F\u0440\u043E\u0435\u043A\u0442\u044B");
+		EncodedMailboxName renamed = tested.rename(tested.encode(PATH), from, to);
+		assertEquals(EncodedMailboxName.fromString("\u0410\u0440\u0445\u0438\u0432/\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2024/\u041E\u0442\u0447\u0451\u0442\u044B"), renamed);
+		assertEquals("\u0410\u0440\u0445\u0438\u0432/\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2024/\u041E\u0442\u0447\u0451\u0442\u044B", renamed.toString());
+		assertEquals(to, tested.rename(from, from, to));
+		try {
+			tested.rename(tested.encode("INBOX/\u041F\u0440\u043E\u0435\u043A\u0442\u044BX"), from, to);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			tested.rename(tested.encode("INBOX"), from, to);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testDelimiters() throws Exception {
+		char[] valid = new char[] { '/', '.', '\\', ':', '|', ' ', '~' };
+		for (int i = 0; i < valid.length; i++)
+			assertEquals(valid[i], charset.pathCodec(valid[i]).delimiter());
+		char[] invalid = new char[] { '&', '-', 'a', '0', '+', ',', '\t', '\u00E9', '\u0000' };
+		for (int i = 0; i < invalid.length; i++) {
+			try {
+				charset.pathCodec(invalid[i]);
+				fail("expected IllegalArgumentException for " + (int) invalid[i]);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	public void testThreads() throws Exception {
+		final String[] paths = new String[200];
+		for (int i = 0; i < paths.length; i++)
+			paths[i] = randomPath('/');
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < paths.length; i++) {
+							assertEquals(EncodedMailboxName.fromString(paths[i]), tested
+									.encode(paths[i]));
+							assertEquals(paths[i], tested.decode(encode(paths[i])));
+						}
+					} catch (Throwable e) {
+						failure[0] = e;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+		if (failure[0] != null)
+			throw new AssertionError(failure[0]);
+	}
+
+	private String randomPath(char delimiter) {
+		StringBuffer sb = new StringBuffer("INBOX");
+		int segments = random.nextInt(4);
+		for (int i = 0; i < segments; i++) {
+			sb.append(delimiter);
+			int length = random.nextInt(4);
+			for (int j = 0; j < length; j++) {
+				char ch = CHARS.charAt(random.nextInt(CHARS.length()));
+				if (ch != delimiter && !Character.isSurrogate(ch))
+					sb.append(ch);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static byte[] encode(String s) throws Exception {
+		return s.getBytes("X-MODIFIED-UTF-7");
+	}
+
+	private static byte[] ascii(String s) throws Exception {
+		return s.getBytes("US-ASCII");
+	}
+}
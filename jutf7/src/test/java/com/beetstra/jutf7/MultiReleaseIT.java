@@ -0,0 +1,50 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.net.URL;
+import junit.framework.TestCase;
+
+/**
+ * Run by failsafe against the packaged jar: checks the JDK picks up the classes in 
+ * <code>META-INF/versions</code> which match its version.
+ */
+public class MultiReleaseIT extends TestCase {
+	public void testCodecSupportVersion() throws Exception {
+		URL url = CodecSupport.class.getResource("CodecSupport.class");
+		assertEquals("jar", url.getProtocol());
+		String version = System.getProperty("java.specification.version");
+		int feature = version.startsWith("1.") ? 8 : Integer.parseInt(version);
+		if (feature >= 17)
+			assertTrue(url.toString(), url.getPath().indexOf("/META-INF/versions/17/") >= 0);
+		else if (feature >= 11)
+			assertTrue(url.toString(), url.getPath().indexOf("/META-INF/versions/11/") >= 0);
+		else
+			assertTrue(url.toString(), url.getPath().indexOf("/META-INF/versions/") < 0);
+	}
+
+	public void testFlushHackDisabled() throws Exception {
+		assertFalse(CodecSupport.FLUSH_HACK);
+	}
+}
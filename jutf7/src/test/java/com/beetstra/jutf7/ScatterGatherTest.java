@@ -0,0 +1,150 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ScatterGatherTest extends TestCase {
+	private Random random;
+
+	protected void setUp() throws Exception {
+		random = new Random(42);
+	}
+
+	public void testDecode() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				String s = CharsetTestUtil.randomString(random, 20);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				ByteBuffer[] srcs = scatter(encoded, i % 2 == 1);
+				CharBuffer out = CharBuffer.allocate(encoded.length + 1);
+				assertEquals(s.length(), CharsetTestUtil.CHARSETS[c].decode(srcs, out));
+				out.flip();
+				assertEquals(s, out.toString());
+				for (int j = 0; j < srcs.length; j++)
+					assertFalse(srcs[j].hasRemaining());
+			}
+		}
+	}
+
+	public void testDecodeMalformed() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				byte[] bytes = CharsetTestUtil.randomBytes(random);
+				CharBuffer out = CharBuffer.allocate(bytes.length + 1);
+				CharsetTestUtil.CHARSETS[c].decode(scatter(bytes, i % 2 == 1), out);
+				out.flip();
+				assertEquals(new String(bytes, "ISO-8859-1"), CharsetTestUtil.decode(
+						CharsetTestUtil.CHARSETS[c], bytes), out.toString());
+			}
+		}
+	}
+
+	public void testDecodeOverflow() throws Exception {
+		ByteBuffer[] srcs = new ByteBuffer[] { ByteBuffer.wrap("a&Im".getBytes("US-ASCII")),
+				ByteBuffer.wrap("Ji-b".getBytes("US-ASCII")) };
+		try {
+			UTF7Charsets.X_MODIFIED_UTF_7.decode(srcs, CharBuffer.allocate(2));
+			fail("Expected BufferOverflowException");
+		} catch (BufferOverflowException e) {
+			// expected
+		}
+		assertTrue(srcs[1].hasRemaining());
+	}
+
+	public void testEncode() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				String s = CharsetTestUtil.randomString(random, 20);
+				byte[] expected = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				ByteBuffer[] dsts = gather(expected.length, i % 2 == 1);
+				assertEquals(expected.length, CharsetTestUtil.CHARSETS[c].encode(CharBuffer.wrap(s),
+						dsts));
+				StringBuffer sb = new StringBuffer();
+				for (int j = 0; j < dsts.length; j++) {
+					assertFalse(dsts[j].hasRemaining());
+					dsts[j].flip();
+					while (dsts[j].hasRemaining())
+						sb.append((char) dsts[j].get());
+				}
+				assertEquals(new String(expected, "US-ASCII"), sb.toString());
+			}
+		}
+	}
+
+	public void testEncodeOverflow() throws Exception {
+		CharBuffer src = CharBuffer.wrap("a\u2262b");
+		try {
+			UTF7Charsets.UTF_7.encode(src, new ByteBuffer[] { ByteBuffer.allocate(2),
+					ByteBuffer.allocate(3) });
+			fail("Expected BufferOverflowException");
+		} catch (BufferOverflowException e) {
+			// expected
+		}
+		src = CharBuffer.wrap("a\u2262");
+		try {
+			UTF7Charsets.UTF_7.encode(src, new ByteBuffer[] { ByteBuffer.allocate(5) });
+			fail("Expected BufferOverflowException");
+		} catch (BufferOverflowException e) {
+			// expected
+		}
+		assertFalse(src.hasRemaining());
+	}
+
+	/**
+	 * Splits the bytes over buffers of random size, some of them empty.
+	 */
+	private ByteBuffer[] scatter(byte[] bytes, boolean direct) {
+		ByteBuffer[] srcs = new ByteBuffer[1 + random.nextInt(bytes.length + 1)];
+		int start = 0;
+		for (int i = 0; i < srcs.length; i++) {
+			int end = i == srcs.length - 1 ? bytes.length : start
+					+ random.nextInt(bytes.length - start + 1);
+			srcs[i] = direct ? ByteBuffer.allocateDirect(end - start) : ByteBuffer
+					.allocate(end - start);
+			srcs[i].put(bytes, start, end - start);
+			srcs[i].flip();
+			start = end;
+		}
+		return srcs;
+	}
+
+	/**
+	 * Creates buffers of random size holding <code>length</code> bytes in total.
+	 */
+	private ByteBuffer[] gather(int length, boolean direct) {
+		ByteBuffer[] dsts = new ByteBuffer[1 + random.nextInt(length + 1)];
+		int left = length;
+		for (int i = 0; i < dsts.length; i++) {
+			int size = i == dsts.length - 1 ? left : random.nextInt(Math.min(left, 6) + 1);
+			dsts[i] = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+			left -= size;
+		}
+		return dsts;
+	}
+}
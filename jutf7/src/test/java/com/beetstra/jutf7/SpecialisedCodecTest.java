@@ -0,0 +1,73 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.charset.Charset;
+import junit.framework.TestCase;
+
+public class SpecialisedCodecTest extends TestCase {
+	private UTF7StyleCharset utf7;
+	private UTF7StyleCharset utf7o;
+	private UTF7StyleCharset modified;
+
+	protected void setUp() throws Exception {
+		utf7 = new UTF7Charset("UTF-7", new String[] {}, false);
+		utf7o = new UTF7Charset("X-UTF-7-OPTIONAL", new String[] {}, true);
+		modified = new ModifiedUTF7Charset("X-MODIFIED-UTF-7", new String[] {});
+	}
+
+	public void testCodecClasses() throws Exception {
+		assertEquals(UTF7Encoder.class, utf7.newEncoder().getClass());
+		assertEquals(UTF7OptionalEncoder.class, utf7o.newEncoder().getClass());
+		assertEquals(ModifiedUTF7Encoder.class, modified.newEncoder().getClass());
+		assertEquals(UTF7Decoder.class, utf7.newDecoder().getClass());
+		assertEquals(UTF7Decoder.class, utf7o.newDecoder().getClass());
+		assertEquals(ModifiedUTF7Decoder.class, modified.newDecoder().getClass());
+	}
+
+	public void testDirectSetConstants() throws Exception {
+		assertDirectSet(utf7, UTF7Encoder.DIRECT_LOW, UTF7Encoder.DIRECT_HIGH);
+		assertDirectSet(utf7o, UTF7OptionalEncoder.DIRECT_LOW, UTF7OptionalEncoder.DIRECT_HIGH);
+		assertDirectSet(modified, ModifiedUTF7Encoder.DIRECT_LOW, ModifiedUTF7Encoder.DIRECT_HIGH);
+	}
+
+	public void testMixedUse() throws Exception {
+		Charset[] charsets = new Charset[] { utf7, utf7o, modified };
+		String[] expected = new String[] { "A+ImIDkQ.-+ACE-", "A+ImIDkQ.-!", "A&ImIDkQ-.-!" };
+		for (int n = 0; n < 1000; n++) {
+			int i = n % charsets.length;
+			String string = "A\u2262\u0391.-!";
+			assertEquals(expected[i], CharsetTestUtil.asString(charsets[i].encode(string)));
+			assertEquals(string, charsets[i].decode(CharsetTestUtil.wrap(expected[i])).toString());
+		}
+	}
+
+	private void assertDirectSet(UTF7StyleCharset charset, long low, long high) {
+		for (char ch = 0; ch < 128; ch++) {
+			long bits = ch < 64 ? low : high;
+			assertEquals(charset.name() + " " + (int) ch, charset.canEncodeDirectly(ch),
+					(bits & (1L << ch)) != 0);
+		}
+	}
+}
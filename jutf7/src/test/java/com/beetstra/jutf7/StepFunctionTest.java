@@ -0,0 +1,154 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class StepFunctionTest extends TestCase {
+	private Random random;
+
+	protected void setUp() throws Exception {
+		random = new Random(42);
+	}
+
+	public void testDecode() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				String s = CharsetTestUtil.randomString(random, 20);
+				byte[] encoded = s.getBytes(CharsetTestUtil.CHARSETS[c].name());
+				assertEquals(s, decodeInSteps(CharsetTestUtil.CHARSETS[c], encoded, i % 3));
+			}
+		}
+	}
+
+	public void testDecodeMalformed() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				byte[] bytes = CharsetTestUtil.randomBytes(random);
+				assertEquals(new String(bytes, "ISO-8859-1"), CharsetTestUtil.decode(
+						CharsetTestUtil.CHARSETS[c], bytes), decodeInSteps(
+						CharsetTestUtil.CHARSETS[c], bytes, i % 3));
+			}
+		}
+	}
+
+	public void testDecodeEnd() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.X_MODIFIED_UTF_7;
+		CharBuffer out = CharBuffer.allocate(1);
+		int state = cs.decodeStep(0, ByteBuffer.wrap("&ImI".getBytes("US-ASCII")), out);
+		assertEquals('\u2262', out.get(0));
+		assertFalse(out.hasRemaining());
+		state = cs.decodeEnd(state, out);
+		assertTrue(state != 0);
+		out.clear();
+		assertEquals(0, cs.decodeEnd(state, out));
+		assertEquals('\uFFFD', out.get(0));
+		assertEquals(0, cs.decodeEnd(0, CharBuffer.allocate(0)));
+	}
+
+	public void testEncode() throws Exception {
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				String s = CharsetTestUtil.randomString(random, 20);
+				assertEquals(new String(s.getBytes(CharsetTestUtil.CHARSETS[c].name()),
+						"US-ASCII"), encodeInSteps(CharsetTestUtil.CHARSETS[c], s));
+			}
+		}
+	}
+
+	public void testEncodeEnd() throws Exception {
+		UTF7StyleCharset cs = UTF7Charsets.UTF_7;
+		ByteBuffer out = ByteBuffer.allocate(8);
+		int state = cs.encodeStep(0, CharBuffer.wrap("A\u2262"), out);
+		assertEquals(0, cs.encodeEnd(0, ByteBuffer.allocate(0)));
+		ByteBuffer end = ByteBuffer.allocate(1);
+		assertEquals(state, cs.encodeEnd(state, end));
+		assertEquals(0, end.position());
+		end = ByteBuffer.allocate(2);
+		assertEquals(0, cs.encodeEnd(state, end));
+		out.flip();
+		end.flip();
+		assertEquals("A+Im", new String(out.array(), 0, out.limit(), "US-ASCII"));
+		assertEquals("I-", new String(end.array(), 0, 2, "US-ASCII"));
+	}
+
+	/**
+	 * Decodes in parts of random size, keeping only the state between the calls.
+	 */
+	private String decodeInSteps(UTF7StyleCharset cs, byte[] bytes, int kind) {
+		ByteBuffer all = kind == 1 ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer
+				.allocate(bytes.length);
+		all.put(bytes);
+		all.flip();
+		if (kind == 2)
+			all = all.asReadOnlyBuffer();
+		StringBuffer sb = new StringBuffer();
+		CharBuffer out = CharBuffer.allocate(1 + random.nextInt(3));
+		int state = 0;
+		while (all.hasRemaining()) {
+			ByteBuffer in = all.slice();
+			in.limit(Math.min(in.limit(), random.nextInt(4)));
+			state = cs.decodeStep(state, in, out);
+			all.position(all.position() + in.position());
+			drain(out, sb);
+		}
+		while ((state = cs.decodeEnd(state, out)) != 0)
+			drain(out, sb);
+		drain(out, sb);
+		return sb.toString();
+	}
+
+	private String encodeInSteps(UTF7StyleCharset cs, String s) throws Exception {
+		CharBuffer all = CharBuffer.wrap(s);
+		StringBuffer sb = new StringBuffer();
+		ByteBuffer out = ByteBuffer.allocate(4 + random.nextInt(3));
+		int state = 0;
+		while (all.hasRemaining()) {
+			CharBuffer in = all.slice();
+			in.limit(Math.min(in.limit(), random.nextInt(4)));
+			state = cs.encodeStep(state, in, out);
+			all.position(all.position() + in.position());
+			drain(out, sb);
+		}
+		while ((state = cs.encodeEnd(state, out)) != 0)
+			drain(out, sb);
+		drain(out, sb);
+		return sb.toString();
+	}
+
+	private static void drain(CharBuffer out, StringBuffer sb) {
+		out.flip();
+		sb.append(out);
+		out.clear();
+	}
+
+	private static void drain(ByteBuffer out, StringBuffer sb) throws Exception {
+		out.flip();
+		sb.append(new String(out.array(), 0, out.limit(), "US-ASCII"));
+		out.clear();
+	}
+}
@@ -0,0 +1,87 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class UTF7BuilderTest extends TestCase {
+
+	public void testFragments() throws Exception {
+		UTF7Builder builder = UTF7Charsets.UTF_7.newBuilder();
+		builder.append("\u65E5").append('\u672C').append("\u8A9E x", 0, 1);
+		assertEquals("+ZeVnLIqe-", new String(builder.toBytes(), "US-ASCII"));
+		assertEquals(10, builder.length());
+	}
+
+	public void testSameAsWhole() throws Exception {
+		Random random = new Random(42);
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 500; i++) {
+				UTF7Builder builder = CharsetTestUtil.CHARSETS[c].newBuilder();
+				StringBuffer whole = new StringBuffer();
+				int fragments = random.nextInt(10);
+				for (int j = 0; j < fragments; j++) {
+					String fragment = CharsetTestUtil.randomString(random, 8);
+					whole.append(fragment);
+					if (fragment.length() == 1)
+						builder.append(fragment.charAt(0));
+					else
+						builder.append(fragment);
+				}
+				String expected = new String(whole.toString().getBytes(
+						CharsetTestUtil.CHARSETS[c].name()), "US-ASCII");
+				assertEquals(expected, new String(builder.toBytes(), "US-ASCII"));
+				assertEquals(expected.length(), builder.length());
+			}
+		}
+	}
+
+	public void testContinueAfterToBytes() throws Exception {
+		UTF7Builder builder = UTF7Charsets.X_MODIFIED_UTF_7.newBuilder();
+		builder.append("Entw\u00FC");
+		assertEquals("Entw&APw-", new String(builder.toBytes(), "US-ASCII"));
+		builder.append("\u00FCrfe");
+		assertEquals("Entw&APwA,A-rfe", new String(builder.toBytes(), "US-ASCII"));
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		builder.writeTo(stream);
+		assertEquals("Entw&APwA,A-rfe", stream.toString("US-ASCII"));
+		builder.clear();
+		assertEquals(0, builder.length());
+		builder.append((CharSequence) null);
+		assertEquals("null", new String(builder.toBytes(), "US-ASCII"));
+	}
+
+	public void testGrow() throws Exception {
+		StringBuffer sb = new StringBuffer();
+		UTF7Builder builder = UTF7Charsets.UTF_7.newBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("Gr\u00FC\u00DFe ");
+			builder.append("Gr\u00FC\u00DFe ");
+		}
+		assertEquals(new String(sb.toString().getBytes("UTF-7"), "US-ASCII"), new String(
+				builder.toBytes(), "US-ASCII"));
+	}
+}
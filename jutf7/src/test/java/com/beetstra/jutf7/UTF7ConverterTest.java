@@ -0,0 +1,144 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import junit.framework.TestCase;
+
+public class UTF7ConverterTest extends TestCase {
+	private Charset utf7;
+	private Charset utf7o;
+	private Charset modified;
+
+	protected void setUp() throws Exception {
+		utf7 = new UTF7Charset("UTF-7", new String[] {}, false);
+		utf7o = new UTF7Charset("X-UTF-7-OPTIONAL", new String[] {}, true);
+		modified = new ModifiedUTF7Charset("X-MODIFIED-UTF-7", new String[] {});
+	}
+
+	public void testRejectOtherCharsets() throws Exception {
+		try {
+			new UTF7Converter(utf7, Charset.forName("UTF-8"));
+			fail("UTF-8 accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testToModified() throws Exception {
+		assertConverted("INBOX", utf7, modified, "INBOX");
+		assertConverted("Hi Mom &Jjo-!", utf7, modified, "Hi Mom +Jjo-!");
+		assertConverted("&ZeVnLIqe-", utf7, modified, "+ZeVnLIqe-");
+		assertConverted("&AP8A,wD,-", utf7, modified, "+AP8A/wD/-");
+		assertConverted("a+b", utf7, modified, "a+-b");
+		assertConverted("a&-b", utf7o, modified, "a&b");
+	}
+
+	public void testFromModified() throws Exception {
+		assertConverted("A+ImIDkQ.", modified, utf7, "A&ImIDkQ-.");
+		assertConverted("+AP8A/wD/-", modified, utf7, "&AP8A,wD,-");
+		assertConverted("a+ACY-b", modified, utf7, "a&-b");
+		assertConverted("a&b", modified, utf7o, "a&-b");
+		assertConverted("a+--b", modified, utf7, "a+-b");
+	}
+
+	public void testDirectSetsDiffer() throws Exception {
+		assertConverted("a&AAk-b", utf7, modified, "a\tb");
+		assertConverted("&AKMACQCj-", utf7, modified, "+AKM-\t+AKM-");
+		assertConverted("~", utf7, modified, "+AH4-");
+		assertConverted("a~&AP8-", utf7, modified, "a+AH4A/w-");
+		assertConverted("+AH4-", modified, utf7, "~");
+		assertConverted("+ACEAIgAj-", modified, utf7, "!\"#");
+		assertConverted("!\"#", modified, utf7o, "!\"#");
+	}
+
+	public void testSameAsDecodeEncode() throws Exception {
+		Charset[] charsets = new Charset[] { utf7, utf7o, modified };
+		String[] texts = new String[] { "", "INBOX.Sent", "caf\u00E9 & cr\u00E8me + \t~",
+				"\u041F\u0440\u043E\u0435\u043A\u0442\u044B/2024", "a\uD83D\uDE00b",
+				"\u00ED+-", "&&++--", "\u65E5\u672C \u8A9E \u30C6\u30AD\u30B9\u30C8" };
+		for (int i = 0; i < charsets.length; i++)
+			for (int j = 0; j < charsets.length; j++)
+				for (int k = 0; k < texts.length; k++) {
+					byte[] encoded = encode(charsets[i], texts[k]);
+					byte[] converted = new UTF7Converter(charsets[i], charsets[j])
+							.convert(encoded);
+					assertEquals(charsets[i] + " -> " + charsets[j], new String(encode(
+							charsets[j], texts[k]), "US-ASCII"), new String(converted,
+							"US-ASCII"));
+				}
+	}
+
+	public void testLenientInput() throws Exception {
+		assertConverted("&AP8A,wD,-#", utf7, modified, "+AP8A/wD/#");
+		assertConverted("&AMMAww-", utf7, modified, "+AMM-+AMM-");
+	}
+
+	public void testMalformed() throws Exception {
+		assertMalformed(modified, "&ImIDkQ-&ImIDkQ-");
+		assertMalformed(modified, "&ImIDkQ");
+		assertMalformed(modified, "&a-");
+		assertMalformed(utf7, "+IKx#");
+		assertMalformed(utf7, "+IKwA-");
+	}
+
+	public void testOffset() throws Exception {
+		byte[] src = "xx&Jjo-yy".getBytes("US-ASCII");
+		byte[] converted = new UTF7Converter(modified, utf7).convert(src, 2, 5);
+		assertEquals("+Jjo-", new String(converted, "US-ASCII"));
+		try {
+			new UTF7Converter(modified, utf7).convert(src, 5, 5);
+			fail("out of bounds range accepted");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	private void assertConverted(String expected, Charset from, Charset to, String input)
+			throws Exception {
+		byte[] converted = new UTF7Converter(from, to).convert(input.getBytes("US-ASCII"));
+		assertEquals(expected, new String(converted, "US-ASCII"));
+		assertEquals(from.newDecoder().decode(ByteBuffer.wrap(input.getBytes("US-ASCII")))
+				.toString(), to.newDecoder().decode(ByteBuffer.wrap(converted)).toString());
+	}
+
+	private void assertMalformed(Charset from, String input) throws Exception {
+		try {
+			new UTF7Converter(from, utf7o).convert(input.getBytes("US-ASCII"));
+			fail("malformed input accepted: " + input);
+		} catch (MalformedInputException e) {
+			// expected
+		}
+	}
+
+	private static byte[] encode(Charset charset, String text) throws Exception {
+		ByteBuffer buffer = charset.newEncoder().encode(CharBuffer.wrap(text));
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,152 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class UTF7LikelihoodTest extends TestCase {
+	private static final String[] CHARS = new String[] { "a", "A", "z", "~", "&", "+", "-",
+			"/", ".", " ", "!", "\u00E9", "\u0100", "\u65E5", "\u672C", "\uD800\uDC00" };
+	private static final String BYTES = "&-+!AGEaz,/~";
+
+	public void testNonAscii() throws Exception {
+		UTF7Likelihood likelihood = likelihood(UTF7Charsets.UTF_7, "Hi Mom -+Jjo-!");
+		assertTrue(likelihood.isPossible());
+		assertEquals(1, likelihood.getNonAsciiUnits());
+		assertEquals(0.5f, likelihood.getConfidence(), 0.0001f);
+		likelihood = likelihood(UTF7Charsets.X_MODIFIED_UTF_7, "&ZeVnLIqe-");
+		assertEquals(3, likelihood.getNonAsciiUnits());
+		assertEquals(0.75f, likelihood.getConfidence(), 0.0001f);
+	}
+
+	public void testAscii() throws Exception {
+		UTF7Likelihood likelihood = likelihood(UTF7Charsets.X_MODIFIED_UTF_7, "INBOX.Sent &- Drafts");
+		assertTrue(likelihood.isPossible());
+		assertEquals(0, likelihood.getUnits());
+		assertEquals(0f, likelihood.getConfidence(), 0f);
+	}
+
+	public void testEightBit() throws Exception {
+		byte[] bytes = "+Jjo-".getBytes("US-ASCII");
+		bytes[4] = (byte) 0xE9;
+		assertFalse(UTF7Charsets.UTF_7.likelihood(bytes).isPossible());
+		assertEquals(0f, UTF7Charsets.UTF_7.likelihood(bytes).getConfidence(), 0f);
+	}
+
+	public void testMalformed() throws Exception {
+		assertFalse(likelihood(UTF7Charsets.UTF_7, "C++ is fun").isPossible());
+		assertFalse(likelihood(UTF7Charsets.UTF_7, "1+1=2").isPossible());
+		assertFalse(likelihood(UTF7Charsets.X_MODIFIED_UTF_7, "&AGE-&AGI-").isPossible());
+		assertFalse(likelihood(UTF7Charsets.X_MODIFIED_UTF_7, "&Jjo").isPossible());
+		assertTrue(likelihood(UTF7Charsets.UTF_7, "+Jjo").isPossible());
+	}
+
+	public void testSuspicious() throws Exception {
+		UTF7Likelihood likelihood = likelihood(UTF7Charsets.UTF_7, "+AGEAYg-");
+		assertTrue(likelihood.isPossible());
+		assertEquals(2, likelihood.getSuspiciousUnits());
+		assertEquals(0f, likelihood.getConfidence(), 0f);
+		likelihood = likelihood(UTF7Charsets.UTF_7, "+ADw-script+AD4-");
+		assertEquals(0, likelihood.getSuspiciousUnits());
+		assertEquals(2f / 3f, likelihood.getConfidence(), 0.0001f);
+		assertEquals(2, likelihood(UTF7Charsets.X_MODIFIED_UTF_7, "&ADw-script&AD4-")
+				.getSuspiciousUnits());
+		assertEquals(1, likelihood(UTF7Charsets.UTF_7, "+2AA-").getSuspiciousUnits());
+		assertEquals(0, likelihood(UTF7Charsets.UTF_7, "+2ADcAA-").getSuspiciousUnits());
+	}
+
+	public void testOffset() throws Exception {
+		byte[] bytes = "\u00E9+Jjo-\u00E9".getBytes("ISO-8859-1");
+		assertTrue(UTF7Charsets.UTF_7.likelihood(bytes, 1, 5).isPossible());
+		try {
+			UTF7Charsets.UTF_7.likelihood(bytes, 3, 5);
+			fail("Expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	public void testEncoded() throws Exception {
+		Random random = new Random(42);
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 1000; i++) {
+				String s = randomString(random, 20);
+				UTF7Likelihood likelihood = CharsetTestUtil.CHARSETS[c].likelihood(s
+						.getBytes(CharsetTestUtil.CHARSETS[c].name()));
+				assertTrue(s, likelihood.isPossible());
+				assertEquals(s, nonAscii(s), likelihood.getNonAsciiUnits());
+				assertEquals(s, 0, likelihood.getSuspiciousUnits());
+			}
+		}
+	}
+
+	/**
+	 * Checks ASCII bytes are possible exactly if the decoder reports no malformed input.
+	 */
+	public void testSameAsDecoder() throws Exception {
+		Random random = new Random(42);
+		for (int c = 0; c < CharsetTestUtil.CHARSETS.length; c++) {
+			for (int i = 0; i < 2000; i++) {
+				StringBuffer sb = new StringBuffer();
+				int length = random.nextInt(12);
+				for (int j = 0; j < length; j++)
+					sb.append(BYTES.charAt(random.nextInt(BYTES.length())));
+				byte[] bytes = sb.toString().getBytes("US-ASCII");
+				boolean decodes = true;
+				try {
+					CharsetTestUtil.CHARSETS[c].newDecoder().decode(ByteBuffer.wrap(bytes));
+				} catch (CharacterCodingException e) {
+					decodes = false;
+				}
+				assertEquals(sb.toString(), decodes, CharsetTestUtil.CHARSETS[c].likelihood(bytes)
+						.isPossible());
+			}
+		}
+	}
+
+	private static UTF7Likelihood likelihood(UTF7StyleCharset cs, String encoded)
+			throws Exception {
+		return cs.likelihood(encoded.getBytes("US-ASCII"));
+	}
+
+	private static int nonAscii(String s) {
+		int count = 0;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) >= 0x80)
+				count++;
+		}
+		return count;
+	}
+
+	private static String randomString(Random random, int maxLength) {
+		StringBuffer sb = new StringBuffer();
+		int length = random.nextInt(maxLength);
+		for (int i = 0; i < length; i++)
+			sb.append(CHARS[random.nextInt(CHARS.length)]);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,131 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+
+public class UTF7MetricsTest extends TestCase {
+	private UTF7StyleCharset tested;
+
+	protected void setUp() throws Exception {
+		tested = new ModifiedUTF7Charset("X-METRICS-TEST", new String[] {});
+		tested.metrics.reset();
+		UTF7Metrics.setEnabled(true);
+	}
+
+	protected void tearDown() throws Exception {
+		UTF7Metrics.setEnabled(false);
+	}
+
+	public void testCounts() throws Exception {
+		tested.newDecoder().decode(CharsetTestUtil.wrap("A&ImIDkQ-."));
+		MetricsSnapshot snapshot = UTF7Metrics.snapshot(tested);
+		assertEquals("X-METRICS-TEST", snapshot.getCharsetName());
+		assertEquals(10, snapshot.getBytesIn());
+		assertEquals(4, snapshot.getCharsOut());
+		assertEquals(1, snapshot.getDecodersCreated());
+		tested.newEncoder().encode(CharBuffer.wrap("A\u2262\u0391."), ByteBuffer.allocate(64),
+				true);
+		snapshot = UTF7Metrics.snapshot(tested);
+		assertEquals(4, snapshot.getCharsIn());
+		assertEquals(10, snapshot.getBytesOut());
+		assertEquals(1, snapshot.getEncodersCreated());
+		assertEquals(0, snapshot.getEncodeOverflows());
+		assertEquals(0, snapshot.getMalformed());
+	}
+
+	public void testDisabled() throws Exception {
+		UTF7Metrics.setEnabled(false);
+		tested.decode(CharsetTestUtil.wrap("A&ImIDkQ-."));
+		tested.encode("A\u2262\u0391.");
+		MetricsSnapshot snapshot = UTF7Metrics.snapshot(tested);
+		assertEquals(0, snapshot.getBytesIn());
+		assertEquals(0, snapshot.getBytesOut());
+		assertEquals(0, snapshot.getDecodersCreated());
+	}
+
+	public void testMalformedKinds() throws Exception {
+		CharsetDecoder decoder = tested.newDecoder();
+		CharBuffer out = CharBuffer.allocate(64);
+		assertTrue(decoder.decode(CharsetTestUtil.wrap("&ImIDkQ-&ImIDkQ-"), out, true)
+				.isMalformed());
+		decoder.reset();
+		assertTrue(decoder.decode(CharsetTestUtil.wrap("&a-"), out, true).isMalformed());
+		decoder.reset();
+		assertTrue(decoder.decode(CharsetTestUtil.wrap("&Im#"), out, true).isMalformed());
+		decoder.reset();
+		assertEquals(CoderResult.UNDERFLOW, decoder.decode(CharsetTestUtil.wrap("&ImIDkQ"), out,
+				true));
+		assertTrue(decoder.flush(out).isMalformed());
+		MetricsSnapshot snapshot = UTF7Metrics.snapshot(tested);
+		assertEquals(1, snapshot.getMalformedAdjacentBase64());
+		assertEquals(1, snapshot.getMalformedIncompleteBase64());
+		assertEquals(1, snapshot.getMalformedInvalidBase64());
+		assertEquals(1, snapshot.getMalformedUnterminatedBase64());
+		assertEquals(4, snapshot.getMalformed());
+	}
+
+	public void testOverflows() throws Exception {
+		CharsetDecoder decoder = tested.newDecoder();
+		assertEquals(CoderResult.OVERFLOW, decoder.decode(CharsetTestUtil.wrap("abc"), CharBuffer
+				.allocate(2), false));
+		assertEquals(2, UTF7Metrics.snapshot(tested).getBytesIn());
+		CharsetEncoder encoder = tested.newEncoder();
+		assertEquals(CoderResult.OVERFLOW, encoder.encode(CharBuffer.wrap("abc"), ByteBuffer
+				.allocate(2), false));
+		MetricsSnapshot snapshot = UTF7Metrics.snapshot(tested);
+		assertEquals(1, snapshot.getDecodeOverflows());
+		assertEquals(1, snapshot.getEncodeOverflows());
+	}
+
+	public void testSharedByName() throws Exception {
+		new ModifiedUTF7Charset("X-METRICS-TEST", new String[] {}).newDecoder();
+		tested.newDecoder();
+		assertEquals(2, UTF7Metrics.snapshot(tested).getDecodersCreated());
+		assertNull(UTF7Metrics.snapshot(java.nio.charset.Charset.forName("UTF-8")));
+	}
+
+	public void testMBeans() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.beetstra.jutf7:type=CharsetMetrics,name=UTF-7");
+		UTF7Metrics.registerMBeans();
+		UTF7Metrics.registerMBeans();
+		try {
+			assertTrue(server.isRegistered(name));
+			assertEquals("UTF-7", server.getAttribute(name, "CharsetName"));
+			assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+		} finally {
+			UTF7Metrics.unregisterMBeans();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+}
@@ -0,0 +1,184 @@
+/* ====================================================================
+ * Copyright (c) 2006 J.T. Beetstra
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining 
+ * a copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including 
+ * without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to 
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be 
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, 
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. 
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY 
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE 
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ * ====================================================================
+ */
+package com.beetstra.jutf7;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+import junit.framework.TestCase;
+
+public class UTF7ToUTF8TranscoderTest extends TestCase {
+	private Charset utf7;
+	private Charset modified;
+
+	protected void setUp() throws Exception {
+		utf7 = new UTF7Charset("UTF-7", new String[] {}, false);
+		modified = new ModifiedUTF7Charset("X-MODIFIED-UTF-7", new String[] {});
+	}
+
+	public void testRejectOtherCharsets() throws Exception {
+		try {
+			new UTF7ToUTF8Transcoder(Charset.forName("UTF-8"));
+			fail("UTF-8 accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testSimple() throws Exception {
+		assertTranscoded(utf7, "abc def", "abc def");
+		assertTranscoded(utf7, "", "");
+	}
+
+	public void testBase64() throws Exception {
+		assertTranscoded(utf7, "Hi Mom \u263A!", "Hi Mom +Jjo-!");
+		assertTranscoded(utf7, "\u65E5\u672C\u8A9E", "+ZeVnLIqe-");
+		assertTranscoded(utf7, "Item 3 is \u00A31.", "Item 3 is +AKM-1.");
+		assertTranscoded(utf7, "+-", "+--");
+		assertTranscoded(modified, "A\u2262\u0391.", "A&ImIDkQ-.");
+		assertTranscoded(modified, "&&", "&-&-");
+	}
+
+	public void testSameAsDecoder() throws Exception {
+		String[] inputs = new String[] { "xxx+AP8-x+AP8-x+AP8A/wD/AP8A/wD/AP8-", "+AP8A/wD/#",
+				"#+AOEA4Q#+AOEA4QDh#", "+IKwA4QDp", "+AH4AIQBA-" };
+		for (int i = 0; i < inputs.length; i++)
+			assertTranscoded(utf7, utf7.decode(CharsetTestUtil.wrap(inputs[i])).toString(),
+					inputs[i]);
+	}
+
+	public void testSurrogatePair() throws Exception {
+		assertTranscoded(utf7, "a\uD83D\uDE00b", "a+2D3eAA-b");
+	}
+
+	public void testUnpairedSurrogates() throws Exception {
+		assertTranscoded(utf7, "a\uFFFDb", "a+2D0-b");
+		assertTranscoded(utf7, "a\uFFFDb", "a+3gA-b");
+		assertTranscoded(utf7, "\uFFFD\u00E1", "+2D0A4Q-");
+		assertTranscoded(utf7, "\uFFFD", "+2D0-");
+		assertTranscoded(utf7, "\uFFFD", "+2D0");
+	}
+
+	public void testByteByByte() throws Exception {
+		String expected = "\u20AC\u00E1\u00E9 \uD83D\uDE00 \u65E5\u672C\u8A9E";
+		byte[] input = CharsetTestUtil.asString(utf7.encode(expected)).getBytes("US-ASCII");
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(utf7);
+		ByteBuffer out = ByteBuffer.allocate(64);
+		for (int i = 0; i < input.length; i++) {
+			ByteBuffer in = ByteBuffer.wrap(input, i, 1);
+			assertEquals(CoderResult.UNDERFLOW, transcoder.transcode(in, out));
+			assertFalse(in.hasRemaining());
+		}
+		assertEquals(CoderResult.UNDERFLOW, transcoder.flush(out));
+		out.flip();
+		assertEquals(expected, asUTF8(out));
+	}
+
+	public void testLimitedOutput() throws Exception {
+		String input = "+AP8A/wD/AP8A/wD/AP8-x";
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(utf7);
+		ByteBuffer in = CharsetTestUtil.wrap(input);
+		ByteBuffer out = ByteBuffer.allocate(UTF7ToUTF8Transcoder.MAX_BYTES_PER_BYTE);
+		ByteBuffer all = ByteBuffer.allocate(64);
+		CoderResult result;
+		do {
+			result = transcoder.transcode(in, out);
+			out.flip();
+			all.put(out);
+			out.clear();
+		} while (result.isOverflow());
+		assertEquals(CoderResult.UNDERFLOW, result);
+		assertEquals(CoderResult.UNDERFLOW, transcoder.flush(out));
+		all.flip();
+		assertEquals("\u00FF\u00FF\u00FF\u00FF\u00FF\u00FF\u00FFx", asUTF8(all));
+	}
+
+	public void testMalformed() throws Exception {
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(utf7);
+		ByteBuffer in = CharsetTestUtil.wrap("+IKx#");
+		ByteBuffer out = ByteBuffer.allocate(64);
+		assertTrue(transcoder.transcode(in, out).isMalformed());
+		assertEquals(5, in.position());
+		transcoder = new UTF7ToUTF8Transcoder(modified);
+		in = CharsetTestUtil.wrap("&ImIDkQ-&ImIDkQ-");
+		assertTrue(transcoder.transcode(in, out).isMalformed());
+		assertEquals(9, in.position());
+	}
+
+	public void testContinueAfterMalformed() throws Exception {
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(utf7);
+		ByteBuffer in = CharsetTestUtil.wrap("+IKx#x+IKx#y");
+		ByteBuffer out = ByteBuffer.allocate(64);
+		int malformed = 0;
+		CoderResult result;
+		// the caller calls again without skipping any input
+		while ((result = transcoder.transcode(in, out)).isMalformed())
+			malformed++;
+		assertEquals(CoderResult.UNDERFLOW, result);
+		assertEquals(CoderResult.UNDERFLOW, transcoder.flush(out));
+		assertEquals(2, malformed);
+		out.flip();
+		assertEquals("\u20AC#x\u20AC#y", asUTF8(out));
+	}
+
+	public void testMalformedAtEnd() throws Exception {
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(modified);
+		ByteBuffer out = ByteBuffer.allocate(64);
+		assertEquals(CoderResult.UNDERFLOW, transcoder.transcode(CharsetTestUtil.wrap("&Jjo"),
+				out));
+		assertEquals(CoderResult.malformedForLength(1), transcoder.flush(out));
+		assertEquals(CoderResult.UNDERFLOW, transcoder.flush(out));
+	}
+
+	public void testReset() throws Exception {
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(utf7);
+		ByteBuffer out = ByteBuffer.allocate(64);
+		transcoder.transcode(CharsetTestUtil.wrap("+2D"), out);
+		transcoder.reset();
+		out.clear();
+		assertEquals(CoderResult.UNDERFLOW, transcoder.transcode(CharsetTestUtil.wrap("+Jjo-"),
+				out));
+		assertEquals(CoderResult.UNDERFLOW, transcoder.flush(out));
+		out.flip();
+		assertEquals("\u263A", asUTF8(out));
+	}
+
+	private void assertTranscoded(Charset charset, String expected, String input)
+			throws UnsupportedEncodingException {
+		UTF7ToUTF8Transcoder transcoder = new UTF7ToUTF8Transcoder(charset);
+		int capacity = input.length() * UTF7ToUTF8Transcoder.MAX_BYTES_PER_BYTE + 3;
+		ByteBuffer out = ByteBuffer.allocate(capacity);
+		assertEquals(CoderResult.UNDERFLOW, transcoder.transcode(CharsetTestUtil.wrap(input), out));
+		assertEquals(CoderResult.UNDERFLOW, transcoder.flush(out));
+		out.flip();
+		assertEquals(expected, asUTF8(out));
+	}
+
+	private static String asUTF8(ByteBuffer buffer) throws UnsupportedEncodingException {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}